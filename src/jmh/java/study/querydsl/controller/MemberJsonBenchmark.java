@@ -0,0 +1,76 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page<MemberTeamDto> JSON 직렬화: 기본(BeanSerializer) vs MemberJsonComponent
+ * ./gradlew jmh 로 실행, gc 프로파일러의 gc.alloc.rate.norm 이 응답 하나당 할당 바이트
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberJsonBenchmark {
+
+    @Param({"20", "1000"})
+    int rows;
+
+    ObjectMapper defaultMapper;
+    ObjectMapper componentMapper;
+    Page<MemberTeamDto> page;
+    ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+        componentMapper = Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new SimpleModule()
+                        .addSerializer(MemberTeamDto.class, new MemberJsonComponent.MemberTeamDtoSerializer())
+                        .addSerializer(MemberDto.class, new MemberJsonComponent.MemberDtoSerializer())
+                        .addSerializer(Page.class, new MemberJsonComponent.PageSerializer()))
+                .build();
+
+        List<MemberTeamDto> content = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long teamId = i % 10 + 1;
+            content.add(new MemberTeamDto((long) i + 1, "member" + i, i % 60, i % 7 == 0 ? null : teamId,
+                    i % 7 == 0 ? null : "team" + teamId));
+        }
+        page = new PageImpl<>(content, PageRequest.of(1, rows), rows * 10L);
+        out = new ByteArrayOutputStream(rows * 128);
+    }
+
+    @Benchmark
+    public int defaultSerializer() throws IOException {
+        out.reset();
+        defaultMapper.writeValue(out, page);
+        return out.size();
+    }
+
+    @Benchmark
+    public int jsonComponent() throws IOException {
+        out.reset();
+        componentMapper.writeValue(out, page);
+        return out.size();
+    }
+}
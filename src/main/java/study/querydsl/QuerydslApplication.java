@@ -3,20 +3,25 @@ package study.querydsl;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.context.annotation.Bean;
+import study.querydsl.repository.support.HintingJPAQueryFactory;
+import study.querydsl.repository.support.QueryHintPolicy;
 
 import javax.persistence.EntityManager;
 
-@SpringBootApplication
+// 트랜잭션 매니저는 JPA 것 하나만 사용 (R2DBC 는 /rx 조회 전용)
+@SpringBootApplication(exclude = R2dbcTransactionManagerAutoConfiguration.class)
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(QuerydslApplication.class, args);
 	}
 
+	// 모든 쿼리에 기본 힌트(readOnly, fetch size, 타임아웃, 호출 메서드 주석)를 건다. (QueryHintConfig)
 	@Bean
-	JPAQueryFactory jpaQueryFactory(EntityManager em) {
-		return new JPAQueryFactory(em);
+	JPAQueryFactory jpaQueryFactory(EntityManager em, QueryHintPolicy queryHintPolicy) {
+		return new HintingJPAQueryFactory(em, queryHintPolicy);
 	}
 
 }
@@ -0,0 +1,38 @@
+package study.querydsl.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.dto.MemberPageResponse;
+
+import java.util.List;
+
+/**
+ * 회원 조회 응답 형식 (Accept 로 선택)
+ * application/json               기존 Page JSON
+ * application/cbor               기존 Page 를 CBOR 로
+ * application/vnd.member-page+json / +cbor  정규화 응답 (MemberPageResponse)
+ *
+ * +json 은 기본 JSON 컨버터가 받아주므로 CBOR 컨버터에만 정규화 타입을 추가한다.
+ */
+@Configuration
+public class MemberPageFormatConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2CborHttpMessageConverter cbor = null;
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+                cbor = (MappingJackson2CborHttpMessageConverter) converter;
+            }
+        }
+        if (cbor == null) {
+            cbor = new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build());
+            converters.add(cbor);
+        }
+        cbor.setSupportedMediaTypes(List.of(MediaType.APPLICATION_CBOR, MemberPageResponse.CBOR));
+    }
+}
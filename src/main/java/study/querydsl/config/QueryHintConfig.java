@@ -0,0 +1,33 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.repository.support.QueryHintPolicy;
+
+import java.time.Duration;
+
+/**
+ * querydsl 쿼리 기본 힌트 (HintingJPAQueryFactory, Querydsl4RepositorySupport, MemberJpqRepository 에 적용)
+ * 엔드포인트별 타임아웃은 컨트롤러 메서드에 @QueryTimeout
+ */
+@Configuration
+public class QueryHintConfig implements WebMvcConfigurer {
+
+    @Bean
+    public QueryHintPolicy queryHintPolicy(@Value("${querydsl.query-hints.fetch-size:0}") int fetchSize,
+                                           @Value("${querydsl.query-hints.timeout-ms:0}") long timeoutMs,
+                                           @Value("${querydsl.query-hints.caller-comment:true}") boolean callerComment) {
+        return QueryHintPolicy.defaults()
+                .fetchSize(fetchSize)
+                .defaultTimeout(timeoutMs > 0 ? Duration.ofMillis(timeoutMs) : null)
+                .callerComment(callerComment);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryTimeoutInterceptor());
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.config;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.controller.QueryTimeout;
+import study.querydsl.repository.support.QueryHintPolicy;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * 컨트롤러 메서드의 @QueryTimeout 을 요청 스레드에 걸어두고, 요청이 끝나면 지운다.
+ */
+public class QueryTimeoutInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            QueryTimeout queryTimeout = ((HandlerMethod) handler).getMethodAnnotation(QueryTimeout.class);
+            if (queryTimeout != null) {
+                QueryHintPolicy.setEndpointTimeout(Duration.ofMillis(queryTimeout.value()));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryHintPolicy.clearEndpointTimeout();
+    }
+}
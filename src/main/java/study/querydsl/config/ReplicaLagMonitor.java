@@ -0,0 +1,77 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * replica 지연(초) 주기적 확인
+ * lagQuery 는 지연 시간(초)을 숫자 하나로 돌려주는 쿼리 (DB 마다 다름, H2 로컬 테스트는 select 0)
+ * 쿼리가 실패하거나 지연이 maxLagSeconds 를 넘으면 replica 를 쓰지 않는다.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagSeconds;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean replicaUsable = true;
+    private volatile long lastLagSeconds;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagSeconds) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public void start(long checkIntervalMs) {
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void check() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(1);
+            try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                rs.next();
+                lastLagSeconds = rs.getLong(1);
+            }
+            boolean usable = lastLagSeconds <= maxLagSeconds;
+            if (usable != replicaUsable) {
+                log.warn("replica 사용 여부 변경: {} (lag={}s, max={}s)", usable, lastLagSeconds, maxLagSeconds);
+            }
+            replicaUsable = usable;
+        } catch (SQLException e) {
+            if (replicaUsable) {
+                log.warn("replica 확인 실패, 읽기를 primary 로 보냅니다.", e);
+            }
+            replicaUsable = false;
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLastLagSeconds() {
+        return lastLagSeconds;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * @Transactional(readOnly = true) 면 replica, 아니면 primary 로 보내는 DataSource
+ *
+ * 트랜잭션 매니저는 readOnly 플래그를 세팅하기 전에 커넥션을 먼저 얻기 때문에
+ * 반드시 LazyConnectionDataSourceProxy 로 감싸서 실제 쿼리 시점에 커넥션을 고르도록 해야 한다. (ReplicaRoutingDataSourceConfig)
+ * replica 지연이 크거나 장애면(ReplicaLagMonitor) 읽기도 primary 로 보낸다.
+ *
+ * 트랜잭션 안에서 고른 route 는 트랜잭션이 끝날 때까지 기억한다. (currentRoute, 커넥션은 트랜잭션 동안 하나)
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final RoutingDataSourceMetrics metrics;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReplicaLagMonitor lagMonitor, RoutingDataSourceMetrics metrics) {
+        this.lagMonitor = lagMonitor;
+        this.metrics = metrics;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * readOnly 트랜잭션이어도 action 안에서 얻는 커넥션은 primary 로 보낸다.
+     * 트랜잭션이 이미 커넥션을 얻었으면 그 커넥션을 그대로 쓰므로 currentRoute() 로 실제 route 를 확인해야 한다.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            }
+        }
+    }
+
+    /**
+     * 현재 트랜잭션의 커넥션이 간 곳, 아직 커넥션을 안 얻었거나 라우팅을 안 쓰면 null
+     * (REQUIRES_NEW 로 바깥 트랜잭션이 중단되면 바깥의 route 는 보이지 않는다)
+     */
+    public static Route currentRoute() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof RouteSynchronization) {
+                return ((RouteSynchronization) synchronization).route;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return remember(route());
+    }
+
+    private Route route() {
+        if (PRIMARY_PINNED.get() != null || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            metrics.routed(Route.PRIMARY);
+            return Route.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            metrics.fallback();
+            metrics.routed(Route.PRIMARY);
+            return Route.PRIMARY;
+        }
+        metrics.routed(Route.REPLICA);
+        return Route.REPLICA;
+    }
+
+    private static Route remember(Route route) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() && currentRoute() == null) {
+            TransactionSynchronizationManager.registerSynchronization(new RouteSynchronization(route));
+        }
+        return route;
+    }
+
+    // 트랜잭션과 같이 중단/재개되고 끝나면 버려지므로 따로 정리할 필요가 없다.
+    private static class RouteSynchronization implements TransactionSynchronization {
+
+        private final Route route;
+
+        RouteSynchronization(Route route) {
+            this.route = route;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 읽기 전용 트랜잭션은 replica, 나머지는 primary 로 보내는 설정 (querydsl.datasource.routing.enabled=true 일 때만)
+ * spring.datasource 대신 querydsl.datasource.primary / replica 설정을 사용한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.datasource.routing", name = "enabled", havingValue = "true")
+public class ReplicaRoutingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("querydsl.datasource.primary")
+    public HikariDataSource primaryDataSource() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("querydsl.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${querydsl.datasource.replica-lag.query:select 0}") String lagQuery,
+                                               @Value("${querydsl.datasource.replica-lag.max-seconds:5}") long maxLagSeconds,
+                                               @Value("${querydsl.datasource.replica-lag.check-interval-ms:1000}") long checkIntervalMs) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLagSeconds);
+        monitor.start(checkIntervalMs);
+        return monitor;
+    }
+
+    @Bean
+    public RoutingDataSourceMetrics routingDataSourceMetrics(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        return new RoutingDataSourceMetrics(primaryDataSource, replicaDataSource);
+    }
+
+    /**
+     * JPA, querydsl 이 사용하는 DataSource
+     * LazyConnectionDataSourceProxy: 트랜잭션 시작 시점이 아니라 실제 쿼리 시점에 커넥션을 얻음 -> readOnly 플래그를 보고 라우팅 가능
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor,
+                                 RoutingDataSourceMetrics routingDataSourceMetrics) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                primaryDataSource, replicaDataSource, replicaLagMonitor, routingDataSourceMetrics));
+    }
+}
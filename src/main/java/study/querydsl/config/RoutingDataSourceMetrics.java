@@ -0,0 +1,64 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 풀(primary, replica) 별 라우팅 횟수 + 커넥션 풀 상태
+ */
+public class RoutingDataSourceMetrics {
+
+    private final Map<ReplicaRoutingDataSource.Route, LongAdder> routed = new EnumMap<>(ReplicaRoutingDataSource.Route.class);
+    private final LongAdder fallbacks = new LongAdder();
+    private final Map<ReplicaRoutingDataSource.Route, DataSource> pools = new EnumMap<>(ReplicaRoutingDataSource.Route.class);
+
+    public RoutingDataSourceMetrics(DataSource primary, DataSource replica) {
+        for (ReplicaRoutingDataSource.Route route : ReplicaRoutingDataSource.Route.values()) {
+            routed.put(route, new LongAdder());
+        }
+        pools.put(ReplicaRoutingDataSource.Route.PRIMARY, primary);
+        pools.put(ReplicaRoutingDataSource.Route.REPLICA, replica);
+    }
+
+    void routed(ReplicaRoutingDataSource.Route route) {
+        routed.get(route).increment();
+    }
+
+    // readOnly 였지만 replica 상태 때문에 primary 로 보낸 횟수
+    void fallback() {
+        fallbacks.increment();
+    }
+
+    public long getRoutedCount(ReplicaRoutingDataSource.Route route) {
+        return routed.get(route).sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (ReplicaRoutingDataSource.Route route : ReplicaRoutingDataSource.Route.values()) {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("routed", getRoutedCount(route));
+            DataSource dataSource = pools.get(route);
+            if (dataSource instanceof HikariDataSource && ((HikariDataSource) dataSource).getHikariPoolMXBean() != null) {
+                HikariPoolMXBean mxBean = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+                pool.put("active", mxBean.getActiveConnections());
+                pool.put("idle", mxBean.getIdleConnections());
+                pool.put("total", mxBean.getTotalConnections());
+                pool.put("waiting", mxBean.getThreadsAwaitingConnection());
+            }
+            result.put(route.name().toLowerCase(), pool);
+        }
+        result.put("fallbacks", getFallbackCount());
+        return result;
+    }
+}
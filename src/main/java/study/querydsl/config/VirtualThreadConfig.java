@@ -0,0 +1,68 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 요청을 가상 스레드로 처리하는 설정 (querydsl.virtual-threads.enabled=true, Java 21 이상에서만)
+ *
+ * 요청 처리 스레드 = 가상 스레드이므로 컨트롤러 -> 리포지토리 호출도 전부 가상 스레드에서 실행된다.
+ * JDBC 대기 중에는 캐리어 스레드를 놓아주므로 Tomcat 스레드 수(threads.max)가 처리량의 상한이 되지 않는다.
+ * 대신 커넥션 풀보다 많은 요청이 동시에 DB 로 몰리므로 ConnectionLimitingDataSource 세마포어로 풀 크기만큼만 통과시킨다.
+ *
+ * 소스는 Java 11 로 컴파일되므로 Executors.newVirtualThreadPerTaskExecutor() 는 리플렉션으로 호출한다. (./gradlew bootRun -PjavaVersion=21)
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        log.info("Tomcat 요청을 가상 스레드로 처리합니다.");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * DataSource 를 세마포어로 감싼다. 허용 수는 설정값, 없으면 Hikari 풀 크기
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${querydsl.virtual-threads.max-concurrent-connections:0}") int maxConcurrentConnections) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource)) {
+                    return bean;
+                }
+                int permits = maxConcurrentConnections > 0 ? maxConcurrentConnections
+                        : bean instanceof HikariDataSource ? ((HikariDataSource) bean).getMaximumPoolSize() : 10;
+                log.info("DB 동시 접근을 {} 개로 제한합니다.", permits);
+                return new ConnectionLimitingDataSource((DataSource) bean, permits);
+            }
+        };
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("가상 스레드는 Java 21 이상에서만 사용할 수 있습니다. 현재: "
+                    + System.getProperty("java.version"), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.config.RoutingDataSourceMetrics;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "querydsl.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceMetricsController {
+
+    private final RoutingDataSourceMetrics routingDataSourceMetrics;
+
+    @GetMapping("/datasource/metrics")
+    public Map<String, Object> metrics() {
+        return routingDataSourceMetrics.snapshot();
+    }
+}
@@ -1,37 +1,221 @@
 package study.querydsl.controller;
 
+import com.querydsl.core.Tuple;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberBulkInsertResult;
+import study.querydsl.dto.MemberFacetResult;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberInsertDto;
+import study.querydsl.dto.MemberPageResponse;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberDataVersion;
 import study.querydsl.repository.MemberJpqRepository;
 import study.querydsl.repository.MemberRepository;
 import study.querydsl.repository.MemberRepositoryImpl;
+import study.querydsl.repository.SingleFlightMemberRepository;
+import study.querydsl.repository.sql.MemberBulkInsertRepository;
+import study.querydsl.repository.sql.MemberCsvExporter;
+import study.querydsl.repository.sql.MemberCsvImportException;
+import study.querydsl.repository.sql.MemberCsvImporter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final MemberJpqRepository memberJpqRepository;
     private final MemberRepository memberRepository;
+    private final SingleFlightMemberRepository singleFlightMemberRepository;
+    private final MemberFieldsJsonWriter memberFieldsJsonWriter;
+    private final MemberBulkInsertRepository memberBulkInsertRepository;
+    private final MemberCsvImporter memberCsvImporter;
+    private final MemberCsvExporter memberCsvExporter;
+    private final MemberDataVersion memberDataVersion;
+
+    @Value("${querydsl.facet.age-buckets:20,30,40,50}")
+    private List<Integer> defaultAgeBuckets;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
         return memberJpqRepository.search(condition);
     }
 
+    /**
+     * v2, v3 는 If-None-Match 가 현재 ETag(데이터 버전)와 같으면 쿼리 없이 304 를 돌려준다. (notModified)
+     * 응답 형식은 Accept 로 고른다. (MemberPageFormatConfig)
+     */
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Object searchMemberV2(MemberSearchCondition condition, Pageable pageable, ServletWebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return format(memberRepository.searchPageSimple(condition, pageable), webRequest);
     }
 
+    /**
+     * 같은 데이터 버전에서 같은 조건 + 페이지로 동시에 들어온 요청은 쿼리를 한 번만 실행한다. (SingleFlightMemberRepository)
+     */
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Object searchMemberV3(MemberSearchCondition condition, Pageable pageable, ServletWebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return format(singleFlightMemberRepository.searchPageComplex(condition, pageable), webRequest);
+    }
+
+    // 합쳐진 요청 수 등 single-flight 지표
+    @GetMapping("/v3/members/single-flight")
+    public Map<String, Object> singleFlightMetrics() {
+        return singleFlightMemberRepository.metrics();
+    }
+
+    /**
+     * 페이지 + 팀별, 나이 구간별 건수 ex) /v3/members/facets?teamName=teamA&ageBuckets=20,40,60
+     */
+    @QueryTimeout(3000)
+    @GetMapping("/v3/members/facets")
+    public MemberFacetResult searchMemberFacets(MemberSearchCondition condition, Pageable pageable,
+                                                @RequestParam(required = false) List<Integer> ageBuckets) {
+        return memberRepository.searchWithFacets(condition, pageable, ageBuckets != null ? ageBuckets : defaultAgeBuckets);
+    }
+
+    /**
+     * fields= 로 필요한 컬럼만 조회 ex) /v3/members?fields=memberId,username
+     * v2, v3 모두 같은 쿼리(count 생략 가능한 페이징)를 사용한다.
+     */
+    @GetMapping(value = {"/v2/members", "/v3/members"}, params = "fields")
+    public void searchMemberFields(MemberSearchCondition condition, Pageable pageable, @RequestParam String fields,
+                                   ServletWebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (notModified(webRequest)) {
+            return;
+        }
+        List<MemberField> selected;
+        try {
+            selected = MemberField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        Page<Tuple> page = memberRepository.searchPageFields(condition, pageable, selected);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        memberFieldsJsonWriter.write(response.getOutputStream(), page, selected);
+    }
+
+    /**
+     * 검색 조건 목록을 한번에, 결과는 조건 순서대로
+     */
+    @QueryTimeout(3000)
+    @PostMapping("/v1/members/batch")
+    public List<List<MemberTeamDto>> searchMemberBatch(@RequestBody List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "검색 조건은 최대 " + MAX_BATCH_SIZE + " 개까지 가능합니다.");
+        }
+        return memberRepository.searchBatch(conditions);
+    }
+
+    /**
+     * 회원 대량 저장 (JPA 를 거치지 않는 multi-row insert), 처리 건수와 초당 건수를 돌려준다.
+     */
+    @PostMapping("/v1/members/bulk")
+    public MemberBulkInsertResult insertMembers(@RequestBody List<MemberInsertDto> rows) {
+        return memberBulkInsertRepository.insert(rows);
+    }
+
+    /**
+     * 회원 CSV 가져오기 (username,age,teamName), 업로드 파일을 임시 파일로 옮긴 뒤 매핑해서 읽는다.
+     * 중간에 실패하면 에러 메시지의 남은 범위를 ranges 로 같은 파일과 함께 다시 올리면 이어서 저장한다.
+     */
+    @PostMapping("/v1/members/import")
+    public MemberImportResult importMembers(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(required = false) String ranges) throws IOException {
+        List<long[]> pendingRanges;
+        try {
+            pendingRanges = ranges != null ? MemberCsvImportException.parse(ranges) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        Path tmp = Files.createTempFile("member-import-", ".csv");
+        try {
+            file.transferTo(tmp);
+            return memberCsvImporter.importCsv(tmp, pendingRanges);
+        } catch (MemberCsvImportException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 검색 결과 CSV 내려받기, 임시 파일에 다 쓴 뒤(커넥션 반납) 파일을 그대로 흘려보낸다.
+     */
+    @GetMapping("/v1/members/export")
+    public void exportMembers(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        Path tmp = Files.createTempFile("member-export-", ".csv");
+        try {
+            memberCsvExporter.exportCsv(condition, tmp);
+
+            response.setContentType("text/csv;charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"members.csv\"");
+            response.setContentLengthLong(Files.size(tmp));
+            MemberCsvExporter.transfer(tmp, Channels.newChannel(response.getOutputStream()));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * ETag = 데이터 버전 + 요청 URL + Accept(형식마다 본문이 다르므로), 바뀐 게 없으면 304 상태만 세팅하고 true
+     */
+    private boolean notModified(ServletWebRequest webRequest) {
+        HttpServletRequest request = webRequest.getRequest();
+        HttpServletResponse response = webRequest.getResponse();
+        String query = request.getQueryString();
+        String etag = memberDataVersion.etag((query != null ? request.getRequestURI() + "?" + query : request.getRequestURI())
+                + " " + request.getHeader(HttpHeaders.ACCEPT));
+        if (etag == null) {
+            return false;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return webRequest.checkNotModified(etag);
+    }
+
+    // Accept 협상에서 정규화 타입이 이기면 MemberPageResponse, 아니면 Page 그대로 (JSON / CBOR 는 컨버터가 고름)
+    private static Object format(Page<MemberTeamDto> page, ServletWebRequest webRequest) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(webRequest.getHeader(HttpHeaders.ACCEPT));
+        } catch (InvalidMediaTypeException e) {
+            return page; // 잘못된 Accept 는 컨버터 선택 단계에서 406
+        }
+        return MemberPageResponse.isPreferred(accepted) ? MemberPageResponse.of(page) : page;
     }
 }
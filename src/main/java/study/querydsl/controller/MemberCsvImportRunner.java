@@ -0,0 +1,37 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.sql.MemberCsvImportException;
+import study.querydsl.repository.sql.MemberCsvImporter;
+
+import java.nio.file.Paths;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 커맨드라인 가져오기 ex) java -jar querydsl.jar --querydsl.csv-import.file=/data/members.csv
+ * 중간에 실패했으면 에러 메시지의 남은 범위로 이어서 ex) --querydsl.csv-import.ranges=0-1048576,2097152-3145728
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "querydsl.csv-import", name = "file")
+public class MemberCsvImportRunner implements ApplicationRunner {
+
+    private final MemberCsvImporter memberCsvImporter;
+
+    @Value("${querydsl.csv-import.file}")
+    private String file;
+
+    @Value("${querydsl.csv-import.ranges:}")
+    private String ranges;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        memberCsvImporter.importCsv(Paths.get(file), hasText(ranges) ? MemberCsvImportException.parse(ranges) : null);
+    }
+}
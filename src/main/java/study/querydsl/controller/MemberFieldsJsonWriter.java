@@ -0,0 +1,93 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberField;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * fields= 조회 결과(Tuple)를 DTO 로 옮기지 않고 바로 JSON 으로 쓴다.
+ * 필드명은 미리 인코딩된 문자열(SerializedString)을 재사용하고, 숫자는 박싱된 값을 그대로 writeNumber 한다.
+ *
+ * 페이지 정보는 Page 기본 직렬화 중 자주 쓰는 것만 같은 이름으로 쓴다.
+ * {"content":[...],"totalElements":..,"totalPages":..,"number":..,"size":..,"numberOfElements":..,"first":..,"last":..,"empty":..}
+ */
+@Component
+public class MemberFieldsJsonWriter {
+
+    private static final SerializableString CONTENT = new SerializedString("content");
+    private static final SerializableString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializableString TOTAL_PAGES = new SerializedString("totalPages");
+    private static final SerializableString NUMBER = new SerializedString("number");
+    private static final SerializableString SIZE = new SerializedString("size");
+    private static final SerializableString NUMBER_OF_ELEMENTS = new SerializedString("numberOfElements");
+    private static final SerializableString FIRST = new SerializedString("first");
+    private static final SerializableString LAST = new SerializedString("last");
+    private static final SerializableString EMPTY = new SerializedString("empty");
+
+    private final ObjectMapper objectMapper;
+
+    public MemberFieldsJsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(OutputStream out, Page<Tuple> page, List<MemberField> fields) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+
+            gen.writeFieldName(CONTENT);
+            gen.writeStartArray();
+            for (Tuple row : page.getContent()) {
+                writeRow(gen, row, fields);
+            }
+            gen.writeEndArray();
+
+            gen.writeFieldName(TOTAL_ELEMENTS);
+            gen.writeNumber(page.getTotalElements());
+            gen.writeFieldName(TOTAL_PAGES);
+            gen.writeNumber(page.getTotalPages());
+            gen.writeFieldName(NUMBER);
+            gen.writeNumber(page.getNumber());
+            gen.writeFieldName(SIZE);
+            gen.writeNumber(page.getSize());
+            gen.writeFieldName(NUMBER_OF_ELEMENTS);
+            gen.writeNumber(page.getNumberOfElements());
+            gen.writeFieldName(FIRST);
+            gen.writeBoolean(page.isFirst());
+            gen.writeFieldName(LAST);
+            gen.writeBoolean(page.isLast());
+            gen.writeFieldName(EMPTY);
+            gen.writeBoolean(page.isEmpty());
+
+            gen.writeEndObject();
+        }
+    }
+
+    private void writeRow(JsonGenerator gen, Tuple row, List<MemberField> fields) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < fields.size(); i++) {
+            MemberField field = fields.get(i);
+            gen.writeFieldName(field.getSerializedName());
+            Object value = row.get(i, Object.class);
+            if (value == null) {
+                gen.writeNull();
+            } else if (value instanceof Long) {
+                gen.writeNumber((Long) value);
+            } else if (value instanceof Integer) {
+                gen.writeNumber((Integer) value);
+            } else {
+                gen.writeString(value.toString());
+            }
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,150 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+import org.springframework.data.domain.Page;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.util.List;
+
+import static study.querydsl.dto.MemberField.AGE;
+import static study.querydsl.dto.MemberField.MEMBER_ID;
+import static study.querydsl.dto.MemberField.TEAM_ID;
+import static study.querydsl.dto.MemberField.TEAM_NAME;
+import static study.querydsl.dto.MemberField.USERNAME;
+
+/**
+ * MemberTeamDto, MemberDto, Page 직렬화 (리플렉션 기반 BeanSerializer 대신)
+ * 필드명은 미리 인코딩된 문자열(SerializedString)을 재사용하고 값은 getter 로 바로 쓴다. (row 마다 중간 객체 X)
+ * 결과 JSON 은 기본 직렬화와 같다. (키, 값 모두 / MemberJsonComponentTest)
+ */
+@JsonComponent
+public class MemberJsonComponent {
+
+    private static final SerializableString CONTENT = new SerializedString("content");
+    private static final SerializableString PAGEABLE = new SerializedString("pageable");
+    private static final SerializableString LAST = new SerializedString("last");
+    private static final SerializableString TOTAL_PAGES = new SerializedString("totalPages");
+    private static final SerializableString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializableString SIZE = new SerializedString("size");
+    private static final SerializableString NUMBER = new SerializedString("number");
+    private static final SerializableString SORT = new SerializedString("sort");
+    private static final SerializableString FIRST = new SerializedString("first");
+    private static final SerializableString NUMBER_OF_ELEMENTS = new SerializedString("numberOfElements");
+    private static final SerializableString EMPTY = new SerializedString("empty");
+
+    public static class MemberTeamDtoSerializer extends StdSerializer<MemberTeamDto> {
+
+        public MemberTeamDtoSerializer() {
+            super(MemberTeamDto.class);
+        }
+
+        @Override
+        public void serialize(MemberTeamDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            gen.writeFieldName(MEMBER_ID.getSerializedName());
+            writeNumber(gen, dto.getMemberId());
+            gen.writeFieldName(USERNAME.getSerializedName());
+            gen.writeString(dto.getUsername());
+            gen.writeFieldName(AGE.getSerializedName());
+            gen.writeNumber(dto.getAge());
+            gen.writeFieldName(TEAM_ID.getSerializedName());
+            writeNumber(gen, dto.getTeamId());
+            gen.writeFieldName(TEAM_NAME.getSerializedName());
+            gen.writeString(dto.getTeamName());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class MemberDtoSerializer extends StdSerializer<MemberDto> {
+
+        public MemberDtoSerializer() {
+            super(MemberDto.class);
+        }
+
+        @Override
+        public void serialize(MemberDto dto, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(dto);
+            gen.writeFieldName(USERNAME.getSerializedName());
+            gen.writeString(dto.getUsername());
+            gen.writeFieldName(AGE.getSerializedName());
+            gen.writeNumber(dto.getAge());
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * content 는 요소 타입별 serializer 를 한 번만 찾아서 쓰고, pageable / sort 는 응답당 하나라서 기본 직렬화에 맡긴다.
+     */
+    @SuppressWarnings("rawtypes")
+    public static class PageSerializer extends StdSerializer<Page> {
+
+        public PageSerializer() {
+            super(Page.class);
+        }
+
+        @Override
+        public void serialize(Page page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(page);
+
+            gen.writeFieldName(CONTENT);
+            writeContent(page.getContent(), gen, provider);
+            gen.writeFieldName(PAGEABLE);
+            provider.defaultSerializeValue(page.getPageable(), gen);
+            gen.writeFieldName(LAST);
+            gen.writeBoolean(page.isLast());
+            gen.writeFieldName(TOTAL_PAGES);
+            gen.writeNumber(page.getTotalPages());
+            gen.writeFieldName(TOTAL_ELEMENTS);
+            gen.writeNumber(page.getTotalElements());
+            gen.writeFieldName(SIZE);
+            gen.writeNumber(page.getSize());
+            gen.writeFieldName(NUMBER);
+            gen.writeNumber(page.getNumber());
+            gen.writeFieldName(SORT);
+            provider.defaultSerializeValue(page.getSort(), gen);
+            gen.writeFieldName(FIRST);
+            gen.writeBoolean(page.isFirst());
+            gen.writeFieldName(NUMBER_OF_ELEMENTS);
+            gen.writeNumber(page.getNumberOfElements());
+            gen.writeFieldName(EMPTY);
+            gen.writeBoolean(page.isEmpty());
+
+            gen.writeEndObject();
+        }
+
+        private static void writeContent(List<?> content, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(content, content.size());
+            Class<?> lastType = null;
+            JsonSerializer<Object> serializer = null;
+            for (int i = 0; i < content.size(); i++) {
+                Object value = content.get(i);
+                if (value == null) {
+                    provider.defaultSerializeNull(gen);
+                    continue;
+                }
+                if (value.getClass() != lastType) {
+                    lastType = value.getClass();
+                    serializer = provider.findContentValueSerializer(lastType, null);
+                }
+                serializer.serialize(value, gen, provider);
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.longValue());
+        }
+    }
+}
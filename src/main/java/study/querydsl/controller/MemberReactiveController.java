@@ -0,0 +1,28 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.reactive.MemberReactiveRepository;
+
+/**
+ * MemberController(/v1/members, JDBC) 와 비교용 논블로킹 조회
+ *
+ * Spring MVC 도 Flux 를 반환하면 스트리밍 미디어 타입(application/x-ndjson)으로 한 건씩 써 주고,
+ * 클라이언트가 느리면 다음 건을 요청하지 않는다. 그동안 요청 스레드, JDBC 커넥션은 점유하지 않는다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MemberReactiveController {
+
+    private final MemberReactiveRepository memberReactiveRepository;
+
+    @GetMapping(value = "/rx/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberTeamDto> searchMember(MemberSearchCondition condition) {
+        return memberReactiveRepository.search(condition);
+    }
+}
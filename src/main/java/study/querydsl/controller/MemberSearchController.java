@@ -0,0 +1,34 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.search.MemberFullTextIndex;
+
+import java.util.List;
+
+/**
+ * 회원명, 팀명 부분 일치/오타 허용 검색 (querydsl.full-text.enabled=true 일 때만)
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "querydsl.full-text", name = "enabled", havingValue = "true")
+public class MemberSearchController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final MemberFullTextIndex memberFullTextIndex;
+    private final MemberRepository memberRepository;
+
+    // 색인에서는 id 만 찾고, 데이터는 IN 쿼리 한번으로 가져온다.
+    @GetMapping("/members/search")
+    public List<MemberTeamDto> search(@RequestParam String q,
+                                      @RequestParam(defaultValue = "20") int limit) {
+        List<Long> memberIds = memberFullTextIndex.search(q, Math.min(Math.max(limit, 1), MAX_LIMIT));
+        return memberRepository.searchByIds(memberIds);
+    }
+}
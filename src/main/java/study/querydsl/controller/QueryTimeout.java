@@ -0,0 +1,19 @@
+package study.querydsl.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 엔드포인트에서 나가는 querydsl 쿼리의 타임아웃 (밀리초, JDBC 가 초 단위라서 초 단위로 올림 ex) 400 -> 1초)
+ * 없으면 querydsl.query-hints.timeout-ms 를 쓴다. (QueryTimeoutInterceptor)
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryTimeout {
+
+    long value();
+}
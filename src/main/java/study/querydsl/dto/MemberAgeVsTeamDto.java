@@ -0,0 +1,28 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 회원 나이와 소속 팀 평균 나이 비교 (diff = age - teamAvgAge)
+ */
+@Data
+public class MemberAgeVsTeamDto {
+
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+    private String teamName;
+    private double teamAvgAge;
+    private double diff;
+
+    public MemberAgeVsTeamDto(Long memberId, String username, int age, Long teamId, String teamName, double teamAvgAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.teamAvgAge = teamAvgAge;
+        this.diff = age - teamAvgAge;
+    }
+}
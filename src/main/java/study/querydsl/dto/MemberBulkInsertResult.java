@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 대량 저장 결과 (저장 건수, 걸린 시간, 초당 처리 건수)
+ */
+@Data
+public class MemberBulkInsertResult {
+
+    private final long rows;
+    private final long elapsedMillis;
+    private final double rowsPerSecond;
+
+    public MemberBulkInsertResult(long rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        this.rowsPerSecond = elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0;
+    }
+}
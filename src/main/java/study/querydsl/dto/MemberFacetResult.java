@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * 검색 결과 페이지 + 같은 조건의 팀별, 나이 구간별 건수
+ * ex) teamCounts = {teamA=50, teamB=50}, ageCounts = {~19=20, 20~29=10, ..., 50~=50}
+ * 팀이 없는 회원은 teamCounts 에 들어가지 않는다.
+ */
+@Data
+public class MemberFacetResult {
+
+    private final Page<MemberTeamDto> page;
+    private final Map<String, Long> teamCounts;
+    private final Map<String, Long> ageCounts;
+}
@@ -0,0 +1,67 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.querydsl.core.types.Expression;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * fields= 파라미터로 고를 수 있는 MemberTeamDto 컬럼
+ * teamId 는 member.team_id(FK) 라서 조인 없이 읽을 수 있고, teamName 만 team 조인이 필요하다.
+ */
+@Getter
+public enum MemberField {
+
+    MEMBER_ID("memberId", member.id, false),
+    USERNAME("username", member.username, false),
+    AGE("age", member.age, false),
+    TEAM_ID("teamId", member.team.id, false),
+    TEAM_NAME("teamName", team.name, true);
+
+    private final String fieldName;
+    private final SerializableString serializedName; // JSON 필드명은 미리 인코딩해둔다.
+    private final Expression<?> expression;
+    private final boolean teamJoinRequired;
+
+    MemberField(String fieldName, Expression<?> expression, boolean teamJoinRequired) {
+        this.fieldName = fieldName;
+        this.serializedName = new SerializedString(fieldName);
+        this.expression = expression;
+        this.teamJoinRequired = teamJoinRequired;
+    }
+
+    /**
+     * "memberId,username" -> [MEMBER_ID, USERNAME] (enum 선언 순서, 중복 제거)
+     */
+    public static List<MemberField> parse(String fields) {
+        Set<MemberField> selected = EnumSet.noneOf(MemberField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(of(trimmed));
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("fields 가 비어 있습니다.");
+        }
+        return new ArrayList<>(selected);
+    }
+
+    private static MemberField of(String fieldName) {
+        for (MemberField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("없는 필드입니다: " + fieldName);
+    }
+}
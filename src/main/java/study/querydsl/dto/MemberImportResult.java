@@ -0,0 +1,22 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * CSV 가져오기 결과 (저장 건수, 건너뛴 줄 수, 걸린 시간, 초당 저장 건수)
+ */
+@Data
+public class MemberImportResult {
+
+    private final long rows;
+    private final long skipped;
+    private final long elapsedMillis;
+    private final double rowsPerSecond;
+
+    public MemberImportResult(long rows, long skipped, long elapsedNanos) {
+        this.rows = rows;
+        this.skipped = skipped;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        this.rowsPerSecond = elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0;
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 대량 저장용 회원 한 건 (teamId 는 없으면 null)
+ */
+@Data
+@NoArgsConstructor
+public class MemberInsertDto {
+
+    private String username;
+    private int age;
+    private Long teamId;
+
+    public MemberInsertDto(String username, int age, Long teamId) {
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+    }
+}
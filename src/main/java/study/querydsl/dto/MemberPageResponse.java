@@ -0,0 +1,72 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원 페이지 정규화 응답 (Accept: application/vnd.member-page+json 또는 +cbor)
+ * 팀명은 teams 에 한 번만 두고 회원 row 는 teamId 로 참조한다. 페이지 정보는 number, size, totalElements 만
+ * ex) {"teams":{"1":"teamA"},"members":[{"memberId":3,"username":"member1","age":10,"teamId":1}],"number":0,"size":20,"totalElements":1}
+ */
+@Data
+public class MemberPageResponse {
+
+    public static final String JSON_VALUE = "application/vnd.member-page+json";
+    public static final String CBOR_VALUE = "application/vnd.member-page+cbor";
+    public static final MediaType JSON = MediaType.parseMediaType(JSON_VALUE);
+    public static final MediaType CBOR = MediaType.parseMediaType(CBOR_VALUE);
+
+    private final Map<Long, String> teams;
+    private final List<Row> members;
+    private final int number;
+    private final int size;
+    private final long totalElements;
+
+    @Data
+    public static class Row {
+        private final Long memberId;
+        private final String username;
+        private final int age;
+        private final Long teamId;
+    }
+
+    public static MemberPageResponse of(Page<MemberTeamDto> page) {
+        Map<Long, String> teams = new LinkedHashMap<>();
+        List<Row> members = new ArrayList<>(page.getNumberOfElements());
+        for (MemberTeamDto dto : page.getContent()) {
+            if (dto.getTeamId() != null) {
+                teams.putIfAbsent(dto.getTeamId(), dto.getTeamName());
+            }
+            members.add(new Row(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId()));
+        }
+        return new MemberPageResponse(teams, members, page.getNumber(), page.getSize(), page.getTotalElements());
+    }
+
+    /**
+     * Accept 협상 결과가 정규화 응답 타입인지 (q 값, 구체적인 타입 우선 -> 컨버터가 고르는 순서와 같다)
+     * ex) application/json, application/vnd.member-page+json;q=0.1 -> false (application/json 이 우선)
+     */
+    public static boolean isPreferred(List<MediaType> accepted) {
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (MediaType mediaType : sorted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (JSON.equalsTypeAndSubtype(mediaType) || CBOR.equalsTypeAndSubtype(mediaType)) {
+                return true;
+            }
+            // application/json, application/cbor, */* 등 기존 Page 형식이 먼저 협상됨
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON) || mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
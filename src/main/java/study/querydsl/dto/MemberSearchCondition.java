@@ -6,6 +6,8 @@ import lombok.Data;
 public class MemberSearchCondition {
     // 회원명, 팀명, 나이(ageGoe, ageLoe)
     private String username;
+    private String usernameStartsWith; // 회원명 앞부분 일치 (like 'xxx%')
+    private boolean usernameIgnoreCase; // username, usernameStartsWith 를 대소문자 구분 없이 비교 (Member.usernameLower 컬럼 사용)
     private String teamName;
     private Integer ageGoe; // 크거나 같거나
     private Integer ageLoe; // 작거나 같거나
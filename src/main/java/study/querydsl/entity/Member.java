@@ -1,10 +1,17 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 @Entity
+@NamedEntityGraph(name = "Member.withTeam", attributeNodes = @NamedAttributeNode("team"))
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_lower", columnList = "username_lower")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age",})
@@ -15,10 +22,18 @@ public class Member {
     @Column(name = "member_id")
     private Long id;
     private String username;
+    // 대소문자 무시 검색용 컬럼, lower(username) 으로 조회하면 인덱스를 못 타므로 소문자로 정규화해서 따로 저장한다.
+    @Setter(AccessLevel.NONE)
+    @Column(name = "username_lower")
+    private String usernameLower;
     private int age;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
+    // 낙관적 락 겸 변경 버전, 벌크 update 도 version + 1 을 해야 한다. (MemberColumnIndex 스냅샷 복원 시 바뀐 row 찾기)
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
 
     public Member(String username) {
         this(username, 0);
@@ -29,15 +44,47 @@ public class Member {
     }
 
     public Member(String username, int age, Team team) {
-        this.username = username;
+        setUsername(username);
         this.age = age;
         if (team != null) {
             changeTeam(team);
         }
     }
 
+    public void setUsername(String username) {
+        this.username = username;
+        this.usernameLower = normalizeUsername(username);
+    }
+
+    // 필드를 직접 바꾸는 경우(리플렉션 등)도 있으니 저장 직전에 한번 더 맞춰준다.
+    @PrePersist
+    @PreUpdate
+    private void syncUsernameLower() {
+        this.usernameLower = normalizeUsername(username);
+    }
+
+    public static String normalizeUsername(String username) {
+        return username != null ? username.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * 팀 변경 (연관관계 편의 메서드)
+     * 양쪽 members 컬렉션은 이미 메모리에 올라와 있을 때만 맞춰준다. (아니면 FK 인 team 만 바꿈)
+     * 회원이 10만 명인 팀에 한 명 넣자고 컬렉션 전체를 로딩하지 않기 위해서, 나중에 컬렉션을 로딩하면 DB 에서 반영된 값을 읽는다.
+     */
     public void changeTeam(Team team) {
+        Team oldTeam = this.team;
         this.team = team;
-        team.getMembers().add(this);
+        if (oldTeam != null && oldTeam != team && isLoaded(oldTeam)) {
+            oldTeam.getMembers().remove(this);
+        }
+        if (team != null && isLoaded(team)) {
+            team.getMembers().add(this);
+        }
+    }
+
+    // 팀 프록시, members 컬렉션 둘 다 초기화돼 있어야 한다. (새로 만든 Team 의 ArrayList 는 항상 true)
+    private static boolean isLoaded(Team team) {
+        return Hibernate.isInitialized(team) && Hibernate.isInitialized(team.getMembers());
     }
 }
@@ -1,12 +1,14 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Entity
@@ -19,10 +21,23 @@ public class Team {
     private Long id;
     private String name;
 
+    // 팀 여러 개의 members 를 로딩할 때 팀마다 select 하지 않고 id IN (최대 100개) 한번으로 가져온다.
+    // 직접 꺼내지 않는다: 연관관계 편의 메서드(Member.changeTeam)만 쓰고, 조회는 MemberRepository.membersOf (회원이 적은 팀만 getAllMembersView)
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "team")
-    public List<Member> members = new ArrayList<>();
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
+
+    /**
+     * 회원 전체 목록 (읽기 전용), 개수 제한 없이 컬렉션 전체를 로딩한다.
+     * 회원이 많을 수 있는 팀은 쓰지 말고 MemberRepository.membersOf(teamId, pageable) 로 페이지 단위로 조회한다.
+     */
+    public List<Member> getAllMembersView() {
+        return Collections.unmodifiableList(members);
+    }
 }
@@ -0,0 +1,67 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.repository.sql.MembersBulkInsertedEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원, 팀 데이터 버전 (조건부 GET 의 ETag 용)
+ *
+ * 커밋된 변경마다 1 씩 올라간다. (MemberDataVersionEventListener, 벌크 저장 / 팀 일괄 변경 이벤트)
+ * 프로세스 안의 카운터라서 재시작 전에 받은 ETag 와 겹치지 않도록 시작 시각을 앞에 붙인다.
+ * 다른 인스턴스나 DB 에 직접 한 변경은 알 수 없으므로 인스턴스 하나 기준이다.
+ */
+@Component
+public class MemberDataVersion {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private final long settleNanos;
+    private volatile long changedAt;
+
+    /**
+     * @param settleMs 변경 직후 이 시간 동안은 ETag 를 만들지 않는다. (replica 가 아직 못 따라온 결과에 새 버전이 붙지 않도록)
+     */
+    public MemberDataVersion(@Value("${querydsl.etag.settle-ms:0}") long settleMs) {
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMs);
+        this.changedAt = System.nanoTime() - settleNanos;
+    }
+
+    public long get() {
+        return version.get();
+    }
+
+    // 시각을 먼저 기록해야 새 버전을 읽은 쪽이 settle 시간도 새로 본다.
+    public void changed() {
+        changedAt = System.nanoTime();
+        version.incrementAndGet();
+    }
+
+    /**
+     * 현재 버전 + 요청(URL 등)으로 만든 ETag, settle 시간 안이면 null
+     * 쿼리 전에 만들어야 쿼리 도중 커밋된 변경이 다음 요청에서 다시 보인다.
+     */
+    public String etag(String request) {
+        long current = version.get();
+        if (settleNanos > 0 && System.nanoTime() - changedAt < settleNanos) {
+            return null;
+        }
+        return "\"" + Long.toHexString(epoch) + "-" + Long.toHexString(current)
+                + "-" + Integer.toHexString(request.hashCode()) + "\"";
+    }
+
+    // 벌크 저장 / update 는 하이버네이트 이벤트가 없으므로 커밋 후 이벤트로 받는다.
+    @TransactionalEventListener
+    public void onBulkInserted(MembersBulkInsertedEvent event) {
+        changed();
+    }
+
+    @TransactionalEventListener
+    public void onTeamReassigned(MembersTeamReassignedEvent event) {
+        changed();
+    }
+}
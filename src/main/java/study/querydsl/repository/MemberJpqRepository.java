@@ -4,10 +4,13 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.HintingJPAQueryFactory;
+import study.querydsl.repository.support.QueryHintPolicy;
 
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -16,20 +19,23 @@ import java.util.Optional;
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.MemberPredicates.*;
 
 /**
  * 순수한 jpa와 queryDsl
+ * 조회는 readOnly 트랜잭션 (querydsl.datasource.routing.enabled=true 면 replica 로 조회된다)
  */
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpqRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
 
-    // queryFactory 직접 생성(Bean 등록을 별도로 하지 않은 상태)
-    public MemberJpqRepository(EntityManager em) {
+    // queryFactory 직접 생성(Bean 등록을 별도로 하지 않은 상태), 쿼리마다 기본 힌트(QueryHintPolicy)를 건다.
+    public MemberJpqRepository(EntityManager em, QueryHintPolicy queryHintPolicy) {
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
+        this.queryFactory = new HintingJPAQueryFactory(em, queryHintPolicy);
     }
 
     // JPAQueryFactory 를 별도로 @Bean 등록한 상태 (이렇게 하면 @RequiredArgsConstructor 사용해서 편하게 할 수 있다)
@@ -38,6 +44,7 @@ public class MemberJpqRepository {
 //        this.queryFactory = queryFactory;
 //    }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
@@ -79,7 +86,10 @@ public class MemberJpqRepository {
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
-            builder.and(member.username.eq(condition.getUsername()));
+            builder.and(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()));
+        }
+        if (hasText(condition.getUsernameStartsWith())) {
+            builder.and(usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()));
         }
         if (hasText(condition.getTeamName())) {
             builder.and(team.name.eq(condition.getTeamName()));
@@ -121,32 +131,17 @@ public class MemberJpqRepository {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamNameEq(team, condition.getTeamName()),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
                 )
                 .fetch();
     }
 
     // 각 메서드 안에서 null 체크만 제대로 해준다면 아래처럼 메서드들을 서로 조합 가능
     public BooleanExpression ageBetween(int ageLoe, int ageGoe) {
-        return ageGoe(ageLoe).and(ageGoe(ageGoe));
-    }
-
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+        return ageGoe(member, ageLoe).and(ageGoe(member, ageGoe));
     }
 }
@@ -1,9 +1,13 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.Tuple;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberFacetResult;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
 import java.util.List;
 
@@ -12,4 +16,11 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable); // 페이징 단순한 것
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable); // 페이징 심화
+    MemberFacetResult searchWithFacets(MemberSearchCondition condition, Pageable pageable, List<Integer> ageBoundaries); // 페이지 + 팀별, 나이 구간별 건수
+    Page<Tuple> searchPageFields(MemberSearchCondition condition, Pageable pageable, List<MemberField> fields); // 고른 컬럼만 조회
+    List<MemberTeamDto> searchByIds(List<Long> memberIds); // 넘겨준 id 순서대로 (전문 검색 결과 조회용)
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions); // 조건 여러 개를 쿼리 몇 번으로, 결과는 조건 순서대로
+    Page<Member> membersOf(Long teamId, Pageable pageable); // 팀 회원 페이지 (Team.members 전체 로딩 대신)
+    List<Member> membersOf(Long teamId, Long lastMemberId, int size); // 팀 회원 keyset 페이지, lastMemberId 다음부터 size 명
+    long reassignTeam(MemberSearchCondition condition, Long targetTeamId); // 조건에 맞는 회원들의 팀을 벌크 update 로 변경
 }
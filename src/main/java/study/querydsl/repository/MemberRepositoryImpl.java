@@ -1,25 +1,45 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberFacetResult;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.index.MemberColumnIndex;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.Member.normalizeUsername;
+import static study.querydsl.repository.support.MemberPredicates.*;
 
 /**
  * 클래스명 중요
@@ -27,21 +47,54 @@ import static study.querydsl.entity.QTeam.team;
  * ex) MemberRepository + Impl -> MemberRepositoryImpl
  * 2. 스프링 데이터 2.x부터는 사용자 정의 인터페이스 명 + Impl 방식도 지원
  * ex) MemberRepositoryCustom + Impl -> MemberRepositoryCustomImpl
+ *
+ * 조회 전용이므로 readOnly 트랜잭션 (querydsl.datasource.routing.enabled=true 면 replica 로 조회된다)
  */
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    private static final int BATCH_CHUNK_SIZE = 100; // 배치 검색에서 쿼리 하나에 넣는 최대 조건 수
+    private static final int IN_CHUNK_SIZE = 1000; // 벌크 update 의 id IN 목록 최대 크기
+
+    // 배치 검색에서 조건 모양(어떤 필드가 채워졌는지) 구분용
+    private static final int SHAPE_USERNAME = 1;
+    private static final int SHAPE_USERNAME_STARTS_WITH = 1 << 1;
+    private static final int SHAPE_IGNORE_CASE = 1 << 2;
+    private static final int SHAPE_TEAM = 1 << 3;
+    private static final int SHAPE_AGE_GOE = 1 << 4;
+    private static final int SHAPE_AGE_LOE = 1 << 5;
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<MemberColumnIndex> memberColumnIndex; // querydsl.member-index.enabled=true 일 때만 존재
+    private final TeamIdCache teamIdCache;
 
 //    public MemberRepositoryImpl(EntityManager em) { // JPAQueryFactory 를 별도로 @Bean 으로 등록하지 않았을 경우
 //        this.queryFactory = new JPAQueryFactory(em);
 //    }
 
-    public MemberRepositoryImpl(JPAQueryFactory jpaQueryFactory) { // JPAQueryFactory 를 별도로 @Bean 등록 했을 경우
+    public MemberRepositoryImpl(EntityManager em, JPAQueryFactory jpaQueryFactory, ApplicationEventPublisher eventPublisher,
+                                ObjectProvider<MemberColumnIndex> memberColumnIndex, TeamIdCache teamIdCache) { // JPAQueryFactory 를 별도로 @Bean 등록 했을 경우
+        this.em = em;
         this.queryFactory = jpaQueryFactory;
+        this.eventPublisher = eventPublisher;
+        this.memberColumnIndex = memberColumnIndex;
+        this.teamIdCache = teamIdCache;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberColumnIndex index = memberColumnIndex.getIfAvailable();
+        if (index != null && useIndex(index, condition)) {
+            return index.search(condition);
+        }
+
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) { // 없는 팀명이면 DB 조회 없이 빈 결과
+            return new ArrayList<>();
+        }
+
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -52,10 +105,11 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
                 )
                 .fetch();
     }
@@ -65,6 +119,11 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
      */
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+
         QueryResults<MemberTeamDto> results = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -75,10 +134,11 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
                 )
                 .offset(pageable.getOffset())   // 몇번재부터 조회
                 .limit(pageable.getPageSize()) // 페이지당 몇 개 조회할 것인가
@@ -148,6 +208,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
      */
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
 
         // content 쿼리
         List<MemberTeamDto> content = queryFactory
@@ -160,25 +224,26 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
                 )
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
 
-        // total 쿼리
+        // total 쿼리 (팀 조건도 member.team_id 로 걸리므로 team 조인이 필요 없다)
         JPAQuery<Member> countQuery = queryFactory
                 .select(member)
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
                 );
 
         // 원래 fetchCount() 를 실행해야 count 쿼리가 날아간다.
@@ -186,19 +251,435 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    /**
+     * 페이지와 facet(팀별, 나이 구간별 건수)을 같이 조회
+     *
+     * facet 마다 group by 쿼리를 따로 날리지 않고, (팀명, 나이) 로 한번만 group by 한 뒤 메모리에서 합친다.
+     * 그룹 수는 많아야 팀 수 * 나이 종류 수라서 작고, 전부 더하면 전체 건수라서 count 쿼리도 필요 없다.
+     * -> content 쿼리 + group by 쿼리, 총 2번
+     *
+     * ageBoundaries 는 구간 시작 나이 ex) [20, 30] -> ~19, 20~29, 30~
+     */
+    @Override
+    public MemberFacetResult searchWithFacets(MemberSearchCondition condition, Pageable pageable, List<Integer> ageBoundaries) {
+        int[] boundaries = ageBoundaries.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        Map<String, Long> teamCounts = new TreeMap<>();
+        Map<String, Long> ageCounts = new LinkedHashMap<>();
+        for (int bucket = 0; bucket <= boundaries.length; bucket++) {
+            ageCounts.put(ageBucketLabel(boundaries, bucket), 0L);
+        }
+
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            return new MemberFacetResult(new PageImpl<>(new ArrayList<>(), pageable, 0), teamCounts, ageCounts);
+        }
+
+        List<Tuple> groups = queryFactory
+                .select(team.name, member.age, member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                )
+                .groupBy(team.name, member.age)
+                .fetch();
+
+        long total = 0;
+        for (Tuple group : groups) {
+            String teamName = group.get(team.name);
+            Integer age = group.get(member.age);
+            long count = group.get(member.count());
+            total += count;
+            if (teamName != null) {
+                teamCounts.merge(teamName, count, Long::sum);
+            }
+            ageCounts.merge(ageBucketLabel(boundaries, ageBucket(boundaries, age)), count, Long::sum);
+        }
+
+        List<MemberTeamDto> content = total <= pageable.getOffset() ? new ArrayList<>() : queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                )
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        return new MemberFacetResult(new PageImpl<>(content, pageable, total), teamCounts, ageCounts);
+    }
+
+    // 나이가 들어가는 구간 번호 (boundaries 중 나이보다 작거나 같은 것의 개수)
+    private static int ageBucket(int[] boundaries, int age) {
+        int bucket = 0;
+        while (bucket < boundaries.length && boundaries[bucket] <= age) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static String ageBucketLabel(int[] boundaries, int bucket) {
+        if (boundaries.length == 0) {
+            return "all";
+        }
+        if (bucket == 0) {
+            return "~" + (boundaries[0] - 1);
+        }
+        if (bucket == boundaries.length) {
+            return boundaries[bucket - 1] + "~";
+        }
+        return boundaries[bucket - 1] + "~" + (boundaries[bucket] - 1);
+    }
+
+    /**
+     * fields 로 고른 컬럼만 select 하는 페이징 (select 절을 런타임에 만든다)
+     * teamName 을 고르지 않으면 team 조인을 하지 않는다. (팀 조건도 member.team_id 로 걸리므로)
+     */
+    @Override
+    public Page<Tuple> searchPageFields(MemberSearchCondition condition, Pageable pageable, List<MemberField> fields) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+
+        Expression<?>[] select = new Expression<?>[fields.size()];
+        boolean teamJoinRequired = false;
+        for (int i = 0; i < fields.size(); i++) {
+            select[i] = fields.get(i).getExpression();
+            teamJoinRequired |= fields.get(i).isTeamJoinRequired();
+        }
+
+        JPAQuery<Tuple> contentQuery = queryFactory
+                .select(select)
+                .from(member);
+        if (teamJoinRequired) {
+            contentQuery.leftJoin(member.team, team);
+        }
+        List<Tuple> content = contentQuery
+                .where(
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                )
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                );
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    /**
+     * id 목록을 IN 쿼리 한번으로 조회하고, 넘겨준 id 순서(검색 점수 순)대로 정렬해서 돌려준다.
+     */
+    @Override
+    public List<MemberTeamDto> searchByIds(List<Long> memberIds) {
+        if (memberIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(memberIds))
+                .fetch();
+
+        Map<Long, MemberTeamDto> byId = new HashMap<>();
+        for (MemberTeamDto dto : content) {
+            byId.put(dto.getMemberId(), dto);
+        }
+        List<MemberTeamDto> ordered = new ArrayList<>(content.size());
+        for (Long memberId : memberIds) {
+            MemberTeamDto dto = byId.get(memberId);
+            if (dto != null) {
+                ordered.add(dto);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 팀 회원을 memberId 순으로 페이지 단위 조회 (pageable 의 정렬은 쓰지 않는다)
+     * 마지막 페이지면 count 쿼리 생략
+     */
+    @Override
+    public Page<Member> membersOf(Long teamId, Pageable pageable) {
+        List<Member> content = queryFactory
+                .selectFrom(member)
+                .where(member.team.id.eq(teamId))
+                .orderBy(member.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.team.id.eq(teamId));
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    /**
+     * 팀 회원 keyset 페이지: memberId > lastMemberId 인 회원을 memberId 순으로 size 명 (lastMemberId 가 null 이면 처음부터)
+     * offset 이 없으므로 뒤 페이지로 갈수록 느려지지 않는다. 다음 페이지는 결과의 마지막 memberId 로 요청한다.
+     */
+    @Override
+    public List<Member> membersOf(Long teamId, Long lastMemberId, int size) {
+        return queryFactory
+                .selectFrom(member)
+                .where(
+                        member.team.id.eq(teamId),
+                        lastMemberId != null ? member.id.gt(lastMemberId) : null
+                )
+                .orderBy(member.id.asc())
+                .limit(size)
+                .fetch();
+    }
+
+    /**
+     * 조건에 맞는 회원들을 targetTeamId 팀으로 옮긴다. (null 이면 팀에서 뺀다) 옮긴 회원 수를 돌려준다.
+     *
+     * Member.changeTeam 을 건마다 부르지 않고 team_id 만 벌크 update 하므로 팀 엔티티, members 컬렉션을 로딩하지 않는다.
+     * 벌크 update 는 영속성 컨텍스트를 거치지 않으므로 먼저 flush 하고, 끝나면 clear 해서 이전 상태의 엔티티를 버린다.
+     * 하이버네이트 이벤트도 없으므로 인덱스들에는 MembersTeamReassignedEvent 로 알린다. (커밋 후 반영)
+     * @Version 도 자동으로 오르지 않으므로 직접 올린다.
+     */
+    @Override
+    @Transactional
+    public long reassignTeam(MemberSearchCondition condition, Long targetTeamId) {
+        List<Long> teamIds = teamIds(condition.getTeamName());
+        if (teamIds != null && teamIds.isEmpty()) {
+            return 0;
+        }
+        em.flush();
+
+        List<Long> memberIds = queryFactory
+                .select(member.id)
+                .from(member)
+                .where(
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                )
+                .fetch();
+        if (memberIds.isEmpty()) {
+            return 0;
+        }
+
+        Team target = targetTeamId != null ? em.getReference(Team.class, targetTeamId) : null; // 프록시, select 없음
+        long updated = 0;
+        for (int i = 0; i < memberIds.size(); i += IN_CHUNK_SIZE) {
+            List<Long> chunk = memberIds.subList(i, Math.min(i + IN_CHUNK_SIZE, memberIds.size()));
+            JPAUpdateClause update = queryFactory.update(member).set(member.version, member.version.add(1));
+            update = target != null ? update.set(member.team, target) : update.setNull(member.team);
+            updated += update.where(member.id.in(chunk)).execute();
+        }
+        em.clear();
+
+        eventPublisher.publishEvent(new MembersTeamReassignedEvent(memberIds, targetTeamId));
+        return updated;
+    }
+
+    /**
+     * 조건 여러 개를 한번에 조회 (BFF 에서 화면 하나에 /v1/members 를 수십 번 부르는 경우)
+     *
+     * 1. 같은 조건은 한번만, 나머지는 조건 모양(채워진 필드 조합)별로 묶는다.
+     * 2. 모양별로 쿼리 하나: 등호 조건 하나뿐인 모양(username, teamName)은 IN, 그 외는 조건들을 OR 로 묶는다.
+     *    (JPQL 에는 UNION ALL 이 없어서 조건 태그 컬럼 대신 OR 로 합친 결과를 한번 읽는다)
+     * 3. 읽은 row 를 조건마다 다시 검사해서(matches) 조건별 결과로 나눈다.
+     */
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        Map<MemberSearchCondition, List<MemberTeamDto>> results = new HashMap<>();
+
+        Map<Integer, List<MemberSearchCondition>> groups = new LinkedHashMap<>();
+        for (MemberSearchCondition condition : new LinkedHashSet<>(conditions)) {
+            groups.computeIfAbsent(shape(condition), k -> new ArrayList<>()).add(condition);
+        }
+        for (Map.Entry<Integer, List<MemberSearchCondition>> group : groups.entrySet()) {
+            List<MemberSearchCondition> groupConditions = group.getValue();
+            for (int i = 0; i < groupConditions.size(); i += BATCH_CHUNK_SIZE) {
+                List<MemberSearchCondition> chunk =
+                        groupConditions.subList(i, Math.min(i + BATCH_CHUNK_SIZE, groupConditions.size()));
+                results.putAll(searchGroup(group.getKey(), chunk));
+            }
+        }
+
+        List<List<MemberTeamDto>> ordered = new ArrayList<>(conditions.size());
+        for (MemberSearchCondition condition : conditions) {
+            ordered.add(new ArrayList<>(results.get(condition)));
+        }
+        return ordered;
+    }
+
+    // 같은 모양의 조건들을 쿼리 한번으로 조회해서 조건별로 나눈다.
+    private Map<MemberSearchCondition, List<MemberTeamDto>> searchGroup(int shape, List<MemberSearchCondition> conditions) {
+        Map<MemberSearchCondition, List<MemberTeamDto>> results = new LinkedHashMap<>();
+        Map<MemberSearchCondition, List<Long>> teamIdsByCondition = new HashMap<>();
+        List<MemberSearchCondition> queried = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions) {
+            results.put(condition, new ArrayList<>());
+            List<Long> teamIds = teamIds(condition.getTeamName());
+            if (teamIds != null && teamIds.isEmpty()) { // 없는 팀명은 조회할 필요 없음
+                continue;
+            }
+            teamIdsByCondition.put(condition, teamIds);
+            queried.add(condition);
+        }
+        if (queried.isEmpty()) {
+            return results;
+        }
+
+        List<MemberTeamDto> rows = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(anyOf(shape, queried, teamIdsByCondition))
+                .fetch();
+
+        for (MemberTeamDto row : rows) {
+            for (MemberSearchCondition condition : queried) {
+                if (matches(condition, teamIdsByCondition.get(condition), row)) {
+                    results.get(condition).add(row);
+                }
+            }
+        }
+        return results;
+    }
+
+    private BooleanBuilder anyOf(int shape, List<MemberSearchCondition> conditions,
+                                 Map<MemberSearchCondition, List<Long>> teamIdsByCondition) {
+        BooleanBuilder builder = new BooleanBuilder();
+        if (shape == 0) { // 조건 없음 = 전체
+            return builder;
+        }
+        if (shape == SHAPE_USERNAME || shape == (SHAPE_USERNAME | SHAPE_IGNORE_CASE)) {
+            List<String> usernames = new ArrayList<>();
+            for (MemberSearchCondition condition : conditions) {
+                usernames.add(shape == SHAPE_USERNAME ? condition.getUsername() : normalizeUsername(condition.getUsername()));
+            }
+            return builder.and(shape == SHAPE_USERNAME ? member.username.in(usernames) : member.usernameLower.in(usernames));
+        }
+        if (shape == SHAPE_TEAM) {
+            List<Long> teamIds = new ArrayList<>();
+            conditions.forEach(condition -> teamIds.addAll(teamIdsByCondition.get(condition)));
+            return builder.and(member.team.id.in(teamIds));
+        }
+        for (MemberSearchCondition condition : conditions) {
+            builder.or(new BooleanBuilder()
+                    .and(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()))
+                    .and(usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()))
+                    .and(teamIdIn(member, teamIdsByCondition.get(condition)))
+                    .and(ageGoe(member, condition.getAgeGoe()))
+                    .and(ageLoe(member, condition.getAgeLoe())));
+        }
+        return builder;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    private static int shape(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= SHAPE_USERNAME;
+        }
+        if (hasText(condition.getUsernameStartsWith())) {
+            shape |= SHAPE_USERNAME_STARTS_WITH;
+        }
+        if (condition.isUsernameIgnoreCase() && (shape & (SHAPE_USERNAME | SHAPE_USERNAME_STARTS_WITH)) != 0) {
+            shape |= SHAPE_IGNORE_CASE;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= SHAPE_TEAM;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= SHAPE_AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= SHAPE_AGE_LOE;
+        }
+        return shape;
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    /**
+     * where 절과 같은 판단을 자바로 (배치 검색 결과를 조건별로 나눌 때 사용)
+     */
+    private static boolean matches(MemberSearchCondition condition, List<Long> teamIds, MemberTeamDto row) {
+        boolean ignoreCase = condition.isUsernameIgnoreCase();
+        String username = ignoreCase ? normalizeUsername(row.getUsername()) : row.getUsername();
+        if (hasText(condition.getUsername())) {
+            String expected = ignoreCase ? normalizeUsername(condition.getUsername()) : condition.getUsername();
+            if (!expected.equals(username)) {
+                return false;
+            }
+        }
+        if (hasText(condition.getUsernameStartsWith())) {
+            String prefix = ignoreCase ? normalizeUsername(condition.getUsernameStartsWith()) : condition.getUsernameStartsWith();
+            if (username == null || !username.startsWith(prefix)) {
+                return false;
+            }
+        }
+        if (teamIds != null && !teamIds.contains(row.getTeamId())) {
+            return false;
+        }
+        if (condition.getAgeGoe() != null && row.getAge() < condition.getAgeGoe()) {
+            return false;
+        }
+        return condition.getAgeLoe() == null || row.getAge() <= condition.getAgeLoe();
+    }
+
+    /**
+     * 인메모리 인덱스는 커밋된 데이터만 알고 있으므로, 쓰기 트랜잭션 안에서는(아직 커밋 안 된 변경이 있을 수 있음) DB 로 조회한다.
+     */
+    private boolean useIndex(MemberColumnIndex index, MemberSearchCondition condition) {
+        boolean inWriteTransaction = TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return index.isLoaded() && index.supports(condition) && !inWriteTransaction;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    /**
+     * 팀명 조건을 팀 id 로 바꾼다. (TeamIdCache)
+     * null 이면 팀 조건 없음, 빈 목록이면 없는 팀명
+     */
+    private List<Long> teamIds(String teamName) {
+        return hasText(teamName) ? teamIdCache.findIds(teamName) : null;
     }
 }
@@ -1,28 +1,36 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
+import study.querydsl.repository.support.FetchPlan;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-import static org.springframework.util.StringUtils.hasText;
 import static org.springframework.util.StringUtils.quote;
 import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.MemberPredicates.*;
 
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
-    public MemberTestRepository(Class<?> domainClass) {
-        super(domainClass);
+    private static final int SCAN_FETCH_SIZE = 1000; // scan 할 때 DB 에서 한번에 받아오는 row 수
+
+    public MemberTestRepository() {
+        super(Member.class);
     }
 
     public List<Member> basicSelect() {
@@ -31,6 +39,14 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
+    /**
+     * fetchPlan 의 연관관계까지 로딩 ex) basicSelect(FetchPlan.named("Member.withTeam"))
+     */
+    public List<Member> basicSelect(FetchPlan fetchPlan) {
+        return fetch(select(member)
+                .from(member), fetchPlan);
+    }
+
     public List<Member> basicSelectFrom() {
         return selectFrom(member)
                 .fetch();
@@ -39,10 +55,11 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
         JPAQuery<Member> query = selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                .where(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamNameEq(team, condition.getTeamName()),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
                 );
 
         List<Member> content = getQuerydsl().applyPagination(pageable, query)
@@ -51,6 +68,32 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
     }
 
+    /**
+     * searchPageByApplyPage + fetchPlan (count 쿼리에는 힌트가 붙지 않도록 쿼리를 따로 만든다)
+     */
+    public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+        List<String[]> collectionPaths = new ArrayList<>();
+        JPAQuery<Member> contentQuery = applyFetchPlan(searchQuery(condition), fetchPlan, collectionPaths);
+
+        List<Member> content = getQuerydsl().applyPagination(pageable, contentQuery)
+                .fetch();
+        initializeCollections(content, collectionPaths);
+
+        JPAQuery<Member> countQuery = searchQuery(condition);
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+    }
+
+    private JPAQuery<Member> searchQuery(MemberSearchCondition condition) {
+        return selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamNameEq(team, condition.getTeamName()),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                );
+    }
+
     /**
      * 위의 searchPageByApplyPage와 완전하게 동일한 함수이지만, 추상화를 한번 더 했음(Support 클래스 만들어서)
      * 코드가 훨씬 더 깔끔해졌음.
@@ -59,10 +102,28 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         return applyPagination(pageable, query -> query
                         .selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
+                        .where(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                                usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                                teamNameEq(team, condition.getTeamName()),
+                                ageGoe(member, condition.getAgeGoe()),
+                                ageLoe(member, condition.getAgeLoe())
+                        )
+        );
+    }
+
+    /**
+     * applyPagination + fetchPlan, to-one 은 조인해서 가져오므로 페이징이 그대로 DB 에서 일어난다.
+     * (fetchJoin() 을 직접 걸면 count 쿼리에도 붙어서 깨진다)
+     */
+    public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+        return applyPagination(pageable, fetchPlan, query -> query
+                        .selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                                usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                                teamNameEq(team, condition.getTeamName()),
+                                ageGoe(member, condition.getAgeGoe()),
+                                ageLoe(member, condition.getAgeLoe())
                         )
         );
     }
@@ -72,36 +133,47 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                         // content용 쿼리
                         .selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
+                        .where(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                                usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                                teamNameEq(team, condition.getTeamName()),
+                                ageGoe(member, condition.getAgeGoe()),
+                                ageLoe(member, condition.getAgeLoe())
 
                         ), contentQuery -> contentQuery // count용 쿼리
                         .select(member.id)
                         .from(member)
                         .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe()))
+                        .where(usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                                usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                                teamNameEq(team, condition.getTeamName()),
+                                ageGoe(member, condition.getAgeGoe()),
+                                ageLoe(member, condition.getAgeLoe()))
                 );
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    /**
+     * 회원 전체(또는 predicate 에 맞는 회원) 순회용, findAll() 처럼 한번에 올리지 않고 chunkSize 명씩 넘긴다.
+     * 스프링 트랜잭션과 상관없이 따로 연 StatelessSession 으로 읽으므로 트랜잭션을 잡지 않는다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long scanMembers(Predicate predicate, int chunkSize, Consumer<List<Member>> chunkConsumer) {
+        return scan(predicate, SCAN_FETCH_SIZE, chunkSize, chunkConsumer);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    /**
+     * scanMembers 를 id 범위로 나눠서 병렬로, chunkConsumer 는 여러 스레드에서 동시에 불린다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long scanMembersParallel(Predicate predicate, int chunkSize, int parallelism, Consumer<List<Member>> chunkConsumer) {
+        return scanParallel(predicate, SCAN_FETCH_SIZE, chunkSize, parallelism, chunkConsumer);
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    /**
+     * 회원을 하나씩 흘려보내는 Stream, try-with-resources 로 닫아야 한다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Stream<Member> streamMembers(Predicate predicate) {
+        return scanStream(predicate, SCAN_FETCH_SIZE);
     }
 
 }
@@ -0,0 +1,21 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 벌크 update 로 팀이 바뀐 회원들 (하이버네이트 이벤트가 없으므로 인덱스들은 이 이벤트로 반영한다)
+ * teamId 가 null 이면 팀에서 빠진 것
+ */
+@Getter
+public class MembersTeamReassignedEvent {
+
+    private final List<Long> ids;
+    private final Long teamId;
+
+    public MembersTeamReassignedEvent(List<Long> ids, Long teamId) {
+        this.ids = ids;
+        this.teamId = teamId;
+    }
+}
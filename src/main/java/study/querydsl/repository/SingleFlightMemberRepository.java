@@ -0,0 +1,119 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberFacetResult;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepositoryCustom 앞에 두는 single-flight 계층
+ * 같은 조건 + 페이지로 동시에 들어온 검색은 쿼리(content, count)를 한 번만 실행하고 결과를 같이 쓴다.
+ *
+ * DTO 를 돌려주는 조회만 합친다. 엔티티 조회(membersOf)와 쓰기(reassignTeam)는 그대로 넘긴다.
+ * 트랜잭션 안의 호출도 그대로 넘긴다. (커밋 전 자기 변경을 봐야 하고, 다른 트랜잭션의 결과를 받으면 안 된다)
+ *
+ * key 에 데이터 버전(MemberDataVersion)을 넣어서 같은 버전에서 시작한 검색끼리만 합친다.
+ * 변경 전에 시작한 검색 결과가 새 버전의 ETag 를 달고 나가면 다음 변경까지 304 로 옛 데이터가 남기 때문이다.
+ */
+@Component
+public class SingleFlightMemberRepository implements MemberRepositoryCustom {
+
+    private final MemberRepository memberRepository;
+    private final MemberDataVersion memberDataVersion;
+    private final SingleFlight<List<Object>, Object> singleFlight = new SingleFlight<>();
+    private final LongAdder inTransaction = new LongAdder();
+
+    public SingleFlightMemberRepository(MemberRepository memberRepository, MemberDataVersion memberDataVersion) {
+        this.memberRepository = memberRepository;
+        this.memberDataVersion = memberDataVersion;
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return coalesce(() -> memberRepository.search(condition), "search", condition);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(() -> memberRepository.searchPageSimple(condition, pageable), "searchPageSimple", condition, pageable);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(() -> memberRepository.searchPageComplex(condition, pageable), "searchPageComplex", condition, pageable);
+    }
+
+    @Override
+    public MemberFacetResult searchWithFacets(MemberSearchCondition condition, Pageable pageable, List<Integer> ageBoundaries) {
+        return coalesce(() -> memberRepository.searchWithFacets(condition, pageable, ageBoundaries),
+                "searchWithFacets", condition, pageable, ageBoundaries);
+    }
+
+    @Override
+    public Page<Tuple> searchPageFields(MemberSearchCondition condition, Pageable pageable, List<MemberField> fields) {
+        return coalesce(() -> memberRepository.searchPageFields(condition, pageable, fields),
+                "searchPageFields", condition, pageable, fields);
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByIds(List<Long> memberIds) {
+        return coalesce(() -> memberRepository.searchByIds(memberIds), "searchByIds", memberIds);
+    }
+
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        return coalesce(() -> memberRepository.searchBatch(conditions), "searchBatch", conditions);
+    }
+
+    @Override
+    public Page<Member> membersOf(Long teamId, Pageable pageable) {
+        return memberRepository.membersOf(teamId, pageable);
+    }
+
+    @Override
+    public List<Member> membersOf(Long teamId, Long lastMemberId, int size) {
+        return memberRepository.membersOf(teamId, lastMemberId, size);
+    }
+
+    @Override
+    public long reassignTeam(MemberSearchCondition condition, Long targetTeamId) {
+        return memberRepository.reassignTeam(condition, targetTeamId);
+    }
+
+    /**
+     * 호출 수, 실제 실행 수, 합쳐진 호출 수, 트랜잭션 안이라서 합치지 않은 호출 수
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = singleFlight.snapshot();
+        metrics.put("inTransaction", inTransaction.sum());
+        return metrics;
+    }
+
+    // key = 데이터 버전 + 메서드 이름 + 인자 (MemberSearchCondition, PageRequest 는 값으로 비교)
+    // 버전은 호출한 쪽이 ETag 를 만든 뒤에 읽으므로 합쳐진 결과는 적어도 그 ETag 버전만큼 새롭다.
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(Supplier<T> loader, Object... args) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            inTransaction.increment();
+            return loader.get();
+        }
+        List<Object> key = new ArrayList<>(args.length + 1);
+        key.add(memberDataVersion.get());
+        key.addAll(Arrays.asList(args));
+        return (T) singleFlight.execute(key, loader::get);
+    }
+}
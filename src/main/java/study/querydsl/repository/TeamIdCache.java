@@ -0,0 +1,92 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.config.ReplicaRoutingDataSource;
+import study.querydsl.config.ReplicaRoutingDataSource.Route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀명 -> 팀 id 캐시
+ * 팀은 수가 적고 거의 바뀌지 않으므로 전체를 한번에 읽어서 들고 있는다.
+ * 전체를 들고 있기 때문에 캐시에 없는 팀명은 DB 에도 없는 팀명이다. (조회 없이 빈 결과로 처리 가능)
+ *
+ * Team 이 저장/수정/삭제되면 TeamIdCacheEventListener 가 invalidate() 를 호출하고, 다음 조회 때 다시 읽는다.
+ * 팀명은 유일하지 않을 수 있어서 id 목록으로 들고 있다.
+ *
+ * 읽기는 호출한 쪽 트랜잭션 안에서 한다. (같은 트랜잭션에서 persist 한 팀도 보이고, 커넥션을 하나 더 잡지 않는다)
+ * 빈 결과(없는 팀명)도 캐시 결과로 쓰기 때문에 다른 트랜잭션에 틀린 결과가 남지 않도록 아래 경우는 캐시에 넣지 않는다.
+ * - 지연된 replica 에서 읽은 결과 : readOnly 트랜잭션이면 primary 로 고정해서 읽고, 이미 replica 커넥션이면 이번 호출에만 쓴다.
+ *   (트랜잭션의 첫 쿼리였다면 그 트랜잭션의 나머지 쿼리도 같은 primary 커넥션을 쓴다)
+ * - 커밋 안 된 팀 변경이 있는 트랜잭션에서 읽은 결과 (TeamIdCacheEventListener)
+ */
+@Component
+public class TeamIdCache {
+
+    private final JPAQueryFactory queryFactory;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Map<String, List<Long>> idsByName;
+
+    public TeamIdCache(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+
+    /**
+     * 팀명에 해당하는 팀 id 들, 없는 팀명이면 빈 목록
+     */
+    public List<Long> findIds(String teamName) {
+        Map<String, List<Long>> snapshot = idsByName;
+        if (snapshot == null) {
+            snapshot = load();
+        }
+        return snapshot.getOrDefault(teamName, Collections.emptyList());
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        idsByName = null;
+    }
+
+    private Map<String, List<Long>> load() {
+        long loadingGeneration = generation.get();
+
+        List<Tuple> rows = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? ReplicaRoutingDataSource.onPrimary(this::fetchTeams)
+                : fetchTeams();
+        // 쿼리 전 auto flush 로 팀이 저장될 수도 있으므로 읽은 뒤에 확인한다.
+        boolean cacheable = ReplicaRoutingDataSource.currentRoute() != Route.REPLICA
+                && !TeamIdCacheEventListener.hasUncommittedTeamChanges();
+
+        Map<String, List<Long>> loaded = new HashMap<>();
+        for (Tuple row : rows) {
+            loaded.computeIfAbsent(row.get(team.name), k -> new ArrayList<>()).add(row.get(team.id));
+        }
+        loaded.replaceAll((name, ids) -> Collections.unmodifiableList(ids));
+        Map<String, List<Long>> result = Collections.unmodifiableMap(loaded);
+
+        // 읽는 도중에 팀이 바뀌었으면(invalidate) 이번 결과는 이번 호출에만 쓰고 캐시에는 넣지 않는다.
+        synchronized (this) {
+            if (cacheable && generation.get() == loadingGeneration) {
+                idsByName = result;
+            }
+        }
+        return result;
+    }
+
+    private List<Tuple> fetchTeams() {
+        return queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .fetch();
+    }
+}
@@ -0,0 +1,116 @@
+package study.querydsl.repository;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+
+/**
+ * Team 변경 시 TeamIdCache 비우기
+ *
+ * 커밋 후에만 비우면 같은 트랜잭션 안에서 방금 persist 한 팀명으로 검색할 때 "없는 팀명" 으로 판단해버리므로
+ * persist / flush 시점에 바로 비우고, 트랜잭션이 끝날 때(커밋이든 롤백이든) 한번 더 비운다.
+ * (트랜잭션 도중 캐시에 올라간 아직 커밋 안 된 팀 정보를 정리)
+ */
+@Component
+public class TeamIdCacheEventListener implements PersistEventListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Object SYNCHRONIZATION_KEY = TeamIdCacheEventListener.class;
+
+    private final EntityManagerFactory emf;
+    private final TeamIdCache teamIdCache;
+
+    public TeamIdCacheEventListener(EntityManagerFactory emf, TeamIdCache teamIdCache) {
+        this.emf = emf;
+        this.teamIdCache = teamIdCache;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PERSIST, this);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPersist(PersistEvent event) throws HibernateException {
+        if (event.getObject() instanceof Team) {
+            teamChanged();
+        }
+    }
+
+    @Override
+    public void onPersist(PersistEvent event, Map createdAlready) throws HibernateException {
+        onPersist(event);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team) {
+            teamChanged();
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team) {
+            teamChanged();
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            teamChanged();
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * 현재 트랜잭션에 아직 커밋 안 된 팀 변경이 있는지 (있으면 그 트랜잭션에서 읽은 팀 목록은 다른 트랜잭션과 다르다)
+     */
+    static boolean hasUncommittedTeamChanges() {
+        return TransactionSynchronizationManager.hasResource(SYNCHRONIZATION_KEY);
+    }
+
+    private void teamChanged() {
+        teamIdCache.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(SYNCHRONIZATION_KEY)) {
+            TransactionSynchronizationManager.bindResource(SYNCHRONIZATION_KEY, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SYNCHRONIZATION_KEY);
+                    teamIdCache.invalidate();
+                }
+            });
+        }
+    }
+}
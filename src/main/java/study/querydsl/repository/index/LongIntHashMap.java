@@ -0,0 +1,109 @@
+package study.querydsl.repository.index;
+
+import java.util.Arrays;
+
+/**
+ * long -> int 전용 해시맵 (open addressing, linear probing)
+ * HashMap<Long, Integer> 처럼 엔트리마다 Long, Integer, Node 객체를 만들지 않는다.
+ * 값은 0 이상만 저장하고, 없는 키는 -1 을 돌려준다.
+ */
+class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                int removed = values[slot];
+                values[slot] = MISSING;
+                size--;
+                shiftBack(slot, mask);
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // 삭제된 자리 뒤의 엔트리들을 당겨서 탐색 체인이 끊기지 않게 한다. (tombstone 없이)
+    private void shiftBack(int emptySlot, int mask) {
+        int slot = (emptySlot + 1) & mask;
+        while (values[slot] != MISSING) {
+            int home = hash(keys[slot]) & mask;
+            boolean canMove = emptySlot <= slot
+                    ? home <= emptySlot || home > slot
+                    : home <= emptySlot && home > slot;
+            if (canMove) {
+                keys[emptySlot] = keys[slot];
+                values[emptySlot] = values[slot];
+                values[slot] = MISSING;
+                emptySlot = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
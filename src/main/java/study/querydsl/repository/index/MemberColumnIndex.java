@@ -0,0 +1,626 @@
+package study.querydsl.repository.index;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.dto.MemberInsertDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MembersTeamReassignedEvent;
+import study.querydsl.repository.sql.MembersBulkInsertedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 전용 인메모리 컬럼 인덱스
+ * 회원을 엔티티가 아닌 primitive 컬럼(배열)으로 들고 있고, 조건마다 BitSet 을 만들어 교집합(and)으로 결과를 구한다.
+ *
+ * 1. username -> 해시 인덱스 (username -> 해당 row 들의 BitSet)
+ * 2. team -> 사전 인코딩(teamId 를 0..n 의 코드로 바꿔서 int[] 에 저장) + 코드별 BitSet
+ * 3. age -> (age << 32 | row) 로 만든 long[] 을 정렬해두고 이진 탐색으로 범위 조회
+ *    정렬은 쓰기 쪽에서 유지한다. (새 row 는 모아서 병합, 나이가 바뀐 row 는 키 하나만 옮김, 조회 중 정렬 X)
+ *
+ * querydsl.member-index.enabled=true 일 때만 등록되고, 커밋된 데이터만 반영된다. (MemberIndexEventListener 참고)
+ * 적재는 MemberIndexLoader 가 한다. (DB 전체 적재 또는 스냅샷 + 이후 변경분)
+ * 벌크 연산(update, delete 쿼리)은 엔티티 이벤트가 발생하지 않으므로 reload() 로 다시 적재해야 한다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "querydsl.member-index", name = "enabled", havingValue = "true")
+public class MemberColumnIndex {
+
+    private static final int NO_TEAM = -1;
+    private static final long UNKNOWN_VERSION = -1L; // 복원 때 항상 DB 에서 다시 읽는다.
+    private static final int RECONCILE_PAGE_SIZE = 10_000;
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 회원 컬럼 (row 번호로 접근, 삭제된 row 는 live 에서만 빠지고 reload 시 정리된다)
+    private long[] ids = new long[0];
+    private long[] versions = new long[0];
+    private int[] ages = new int[0];
+    private int[] teamCodes = new int[0];
+    private String[] usernames = new String[0];
+    private int size;
+    private BitSet live = new BitSet();
+    private LongIntHashMap rowById = new LongIntHashMap(16);
+    private Map<String, BitSet> usernameIndex = new HashMap<>();
+
+    // 팀 사전 (code -> teamId, teamName)
+    private long[] teamIds = new long[16];
+    private String[] teamNames = new String[16];
+    private int teamCount;
+    private Map<Long, Integer> teamCodeById = new HashMap<>();
+    private List<BitSet> teamRows = new ArrayList<>();
+
+    // 나이 정렬 키 (삭제된 row 의 키도 남아 있고 live 로 걸러진다)
+    private long[] ageKeys = new long[0];
+    private int ageKeyCount;
+    private volatile boolean loaded;
+
+    public MemberColumnIndex(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+
+    /**
+     * DB 에서 전체를 다시 적재한다. 적재 전까지는 isLoaded() 가 false 라서 querydsl 로 조회된다.
+     */
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            List<Tuple> rows = queryFactory
+                    .select(member.id, member.version, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .orderBy(member.id.asc())
+                    .fetch();
+
+            clear(rows.size());
+            // 회원이 없는 팀도 사전에 넣어둔다. (나중에 회원이 들어오면 이름으로 찾을 수 있도록)
+            loadTeams();
+            for (Tuple row : rows) {
+                upsertInternal(row.get(member.id), version(row.get(member.version)), row.get(member.username),
+                        row.get(member.age), row.get(team.id), row.get(team.name));
+            }
+            mergeAgeKeys(0);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 스냅샷 컬럼을 그대로 인덱스로 쓰고, 꺼져 있던 동안 DB 에서 바뀐 부분만 다시 읽는다.
+     * 1. 팀은 수가 적으므로 id, 이름을 전부 다시 읽는다. (이름 변경, 새 팀)
+     * 2. 회원은 (id, version) 만 id 순으로 나눠 읽어서 스냅샷과 비교한다.
+     *    version 이 다르거나 스냅샷에 없는 회원은 전체 컬럼을 다시 읽고, DB 에 없는 회원은 지운다.
+     * 회원을 바꾸는 쪽은 version 을 올려야 한다. (JPA 는 @Version 으로 자동, 벌크 update 는 직접 version + 1)
+     */
+    void restore(MemberIndexSnapshot.Columns columns) {
+        lock.writeLock().lock();
+        try {
+            ids = columns.ids;
+            versions = columns.versions;
+            ages = columns.ages;
+            teamCodes = columns.teamCodes;
+            usernames = columns.usernames;
+            size = columns.rowCount;
+            live = new BitSet(ids.length);
+            live.set(0, size);
+            rowById = new LongIntHashMap(size);
+            usernameIndex = new HashMap<>();
+            for (int row = 0; row < size; row++) {
+                rowById.put(ids[row], row);
+                if (usernames[row] != null) {
+                    usernameIndex.computeIfAbsent(usernames[row], k -> new BitSet()).set(row);
+                }
+            }
+
+            teamIds = columns.teamIds;
+            teamNames = columns.teamNames;
+            teamCount = columns.teamCount;
+            teamCodeById = new HashMap<>();
+            teamRows = new ArrayList<>(teamCount);
+            for (int code = 0; code < teamCount; code++) {
+                teamCodeById.put(teamIds[code], code);
+                teamRows.add(new BitSet());
+            }
+            for (int row = 0; row < size; row++) {
+                if (teamCodes[row] != NO_TEAM) {
+                    teamRows.get(teamCodes[row]).set(row);
+                }
+            }
+
+            ageKeys = new long[0];
+            ageKeyCount = 0;
+            mergeAgeKeys(0);
+
+            loadTeams();
+            reconcileMembers();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void loadTeams() {
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            teamCode(row.get(team.id), row.get(team.name));
+        }
+    }
+
+    private void reconcileMembers() {
+        BitSet seen = new BitSet(size);
+        List<Long> changed = new ArrayList<>();
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<Tuple> page = queryFactory
+                    .select(member.id, member.version)
+                    .from(member)
+                    .where(member.id.gt(lastId))
+                    .orderBy(member.id.asc())
+                    .limit(RECONCILE_PAGE_SIZE)
+                    .fetch();
+            for (Tuple row : page) {
+                Long memberId = row.get(member.id);
+                int index = rowById.get(memberId);
+                if (index == LongIntHashMap.MISSING) {
+                    changed.add(memberId);
+                } else {
+                    seen.set(index);
+                    if (versions[index] != version(row.get(member.version))) {
+                        changed.add(memberId);
+                    }
+                }
+            }
+            if (page.size() < RECONCILE_PAGE_SIZE) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).get(member.id);
+        }
+
+        BitSet deleted = (BitSet) live.clone();
+        deleted.andNot(seen);
+        for (int row = deleted.nextSetBit(0); row >= 0; row = deleted.nextSetBit(row + 1)) {
+            removeInternal(ids[row]);
+        }
+
+        int firstNewRow = size;
+        for (int i = 0; i < changed.size(); i += IN_CHUNK_SIZE) {
+            List<Tuple> rows = queryFactory
+                    .select(member.id, member.version, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.in(changed.subList(i, Math.min(i + IN_CHUNK_SIZE, changed.size()))))
+                    .fetch();
+            for (Tuple row : rows) {
+                upsertKeepingAgeKeys(row.get(member.id), version(row.get(member.version)), row.get(member.username),
+                        row.get(member.age), row.get(team.id), row.get(team.name));
+            }
+        }
+        mergeAgeKeys(firstNewRow);
+    }
+
+    /**
+     * 살아있는 row 만 앞으로 모아서 스냅샷용 컬럼으로 복사한다.
+     */
+    MemberIndexSnapshot.Columns columns() {
+        lock.readLock().lock();
+        try {
+            MemberIndexSnapshot.Columns columns = new MemberIndexSnapshot.Columns();
+            int rowCount = live.cardinality();
+            columns.ids = new long[rowCount];
+            columns.versions = new long[rowCount];
+            columns.ages = new int[rowCount];
+            columns.teamCodes = new int[rowCount];
+            columns.usernames = new String[rowCount];
+
+            int target = 0;
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                columns.ids[target] = ids[row];
+                columns.versions[target] = versions[row];
+                columns.ages[target] = ages[row];
+                columns.teamCodes[target] = teamCodes[row];
+                columns.usernames[target] = usernames[row];
+                target++;
+            }
+            columns.rowCount = rowCount;
+            columns.teamCount = teamCount;
+            columns.teamIds = Arrays.copyOf(teamIds, teamCount);
+            columns.teamNames = Arrays.copyOf(teamNames, teamCount);
+            return columns;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 인덱스로 답할 수 있는 조건인지
+     * username 은 완전 일치 해시 인덱스만 있으므로 앞부분 일치, 대소문자 무시 검색은 DB(username_lower 인덱스)로 보낸다.
+     */
+    public boolean supports(MemberSearchCondition condition) {
+        return !hasText(condition.getUsernameStartsWith())
+                && !(condition.isUsernameIgnoreCase() && hasText(condition.getUsername()));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) live.clone();
+            if (hasText(condition.getUsername())) {
+                and(result, usernameIndex.get(condition.getUsername()));
+            }
+            if (hasText(condition.getTeamName())) {
+                and(result, teamNameRows(condition.getTeamName()));
+            }
+            if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+                and(result, ageRangeRows(condition.getAgeGoe(), condition.getAgeLoe()));
+            }
+
+            List<MemberTeamDto> content = new ArrayList<>(result.cardinality());
+            for (int row = result.nextSetBit(0); row >= 0; row = result.nextSetBit(row + 1)) {
+                int code = teamCodes[row];
+                content.add(new MemberTeamDto(
+                        ids[row],
+                        usernames[row],
+                        ages[row],
+                        code == NO_TEAM ? null : teamIds[code],
+                        code == NO_TEAM ? null : teamNames[code]));
+            }
+            return content;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 회원 추가/수정 반영
+     * teamName 이 null 이면(팀이 프록시 상태라 이름을 모르는 경우) 사전에 있는 이름을 그대로 쓴다.
+     */
+    public void upsert(Long memberId, Long version, String username, int age, Long teamId, String teamName) {
+        lock.writeLock().lock();
+        try {
+            int firstNewRow = size;
+            upsertKeepingAgeKeys(memberId, version(version), username, age, teamId, teamName);
+            mergeAgeKeys(firstNewRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 대량 저장(MemberBulkInsertRepository)은 하이버네이트 이벤트가 없으므로 커밋 후 이벤트로 반영
+     */
+    @TransactionalEventListener
+    public void onBulkInserted(MembersBulkInsertedEvent event) {
+        List<MemberInsertDto> rows = event.getRows();
+        Set<Long> teamIds = new HashSet<>();
+        for (MemberInsertDto row : rows) {
+            teamIds.add(row.getTeamId());
+        }
+        Map<Long, String> names = findUnknownTeamNames(teamIds);
+
+        lock.writeLock().lock();
+        try {
+            names.forEach(this::teamCode);
+            int firstNewRow = size;
+            for (int i = 0; i < rows.size(); i++) {
+                MemberInsertDto row = rows.get(i);
+                upsertKeepingAgeKeys(event.getIds().get(i), 0L, row.getUsername(), row.getAge(), row.getTeamId(), null);
+            }
+            mergeAgeKeys(firstNewRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 팀 일괄 변경(MemberRepository.reassignTeam)도 벌크 update 라서 커밋 후 이벤트로 반영, 회원명, 나이는 인덱스에 있는 값을 그대로 쓴다.
+     * 이벤트에는 팀 id 만 있으므로 사전에서 이름을 모르는 팀이면 DB 에서 읽는다.
+     * 벌크 update 가 version + 1 을 하므로 인덱스의 version 도 하나 올린다.
+     */
+    @TransactionalEventListener
+    public void onTeamReassigned(MembersTeamReassignedEvent event) {
+        Map<Long, String> names = findUnknownTeamNames(Collections.singleton(event.getTeamId()));
+
+        lock.writeLock().lock();
+        try {
+            names.forEach(this::teamCode);
+            for (Long memberId : event.getIds()) {
+                int row = rowById.get(memberId);
+                if (row != LongIntHashMap.MISSING) {
+                    long version = versions[row] == UNKNOWN_VERSION ? UNKNOWN_VERSION : versions[row] + 1;
+                    upsertInternal(memberId, version, usernames[row], ages[row], event.getTeamId(), null);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 사전에 없거나 이름을 모르는 팀의 이름을 DB 에서 읽는다. (다른 곳에서 만든 팀이 이벤트로 처음 들어오는 경우)
+     * 조회하는 동안 검색이 막히지 않도록 쓰기 락 밖에서 호출한다.
+     */
+    private Map<Long, String> findUnknownTeamNames(Collection<Long> teamIds) {
+        List<Long> unknown = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long teamId : teamIds) {
+                Integer code = teamId != null ? teamCodeById.get(teamId) : null;
+                if (teamId != null && (code == null || teamNames[code] == null)) {
+                    unknown.add(teamId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        for (int i = 0; i < unknown.size(); i += IN_CHUNK_SIZE) {
+            List<Tuple> rows = queryFactory
+                    .select(team.id, team.name)
+                    .from(team)
+                    .where(team.id.in(unknown.subList(i, Math.min(i + IN_CHUNK_SIZE, unknown.size()))))
+                    .fetch();
+            for (Tuple row : rows) {
+                names.put(row.get(team.id), row.get(team.name));
+            }
+        }
+        return names;
+    }
+
+    public void remove(Long memberId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(memberId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void renameTeam(Long teamId, String teamName) {
+        lock.writeLock().lock();
+        try {
+            Integer code = teamCodeById.get(teamId);
+            if (code != null) {
+                teamNames[code] = teamName;
+            } else {
+                teamCode(teamId, teamName);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clear(int capacity) {
+        ids = new long[Math.max(capacity, 16)];
+        versions = new long[ids.length];
+        ages = new int[ids.length];
+        teamCodes = new int[ids.length];
+        usernames = new String[ids.length];
+        size = 0;
+        live = new BitSet(ids.length);
+        rowById = new LongIntHashMap(capacity);
+        usernameIndex = new HashMap<>(capacity * 2);
+
+        teamIds = new long[16];
+        teamNames = new String[16];
+        teamCount = 0;
+        teamCodeById = new HashMap<>();
+        teamRows = new ArrayList<>();
+
+        ageKeys = new long[0];
+        ageKeyCount = 0;
+    }
+
+    /**
+     * 기존 row 의 나이가 바뀌면 정렬 키를 바로 옮기고, 새 row 의 키는 호출한 쪽에서 mergeAgeKeys 로 한번에 넣는다.
+     */
+    private void upsertKeepingAgeKeys(Long memberId, long version, String username, int age, Long teamId, String teamName) {
+        int row = rowById.get(memberId);
+        if (row != LongIntHashMap.MISSING && ages[row] != age) {
+            moveAgeKey(ageKey(ages[row], row), ageKey(age, row));
+        }
+        upsertInternal(memberId, version, username, age, teamId, teamName);
+    }
+
+    private void upsertInternal(Long memberId, long version, String username, int age, Long teamId, String teamName) {
+        int row = rowById.get(memberId);
+        if (row == LongIntHashMap.MISSING) {
+            row = appendRow();
+            rowById.put(memberId, row);
+        } else {
+            unlink(row);
+        }
+
+        ids[row] = memberId;
+        versions[row] = version;
+        usernames[row] = username;
+        ages[row] = age;
+        teamCodes[row] = teamCode(teamId, teamName);
+        live.set(row);
+
+        if (username != null) {
+            usernameIndex.computeIfAbsent(username, k -> new BitSet()).set(row);
+        }
+        if (teamCodes[row] != NO_TEAM) {
+            teamRows.get(teamCodes[row]).set(row);
+        }
+    }
+
+    private int appendRow() {
+        if (size == ids.length) {
+            int capacity = Math.max(16, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            teamCodes = Arrays.copyOf(teamCodes, capacity);
+            usernames = Arrays.copyOf(usernames, capacity);
+        }
+        return size++;
+    }
+
+    private void removeInternal(long memberId) {
+        int row = rowById.remove(memberId);
+        if (row != LongIntHashMap.MISSING) {
+            unlink(row);
+            live.clear(row);
+        }
+    }
+
+    private static long version(Long version) {
+        return version != null ? version : UNKNOWN_VERSION;
+    }
+
+    // 기존 row 를 username, team 인덱스에서 빼낸다. (age 는 정렬 키를 새로 만들 때 반영)
+    private void unlink(int row) {
+        String username = usernames[row];
+        if (username != null) {
+            BitSet rows = usernameIndex.get(username);
+            if (rows != null) {
+                rows.clear(row);
+                if (rows.isEmpty()) {
+                    usernameIndex.remove(username);
+                }
+            }
+        }
+        if (teamCodes[row] != NO_TEAM) {
+            teamRows.get(teamCodes[row]).clear(row);
+        }
+    }
+
+    private int teamCode(Long teamId, String teamName) {
+        if (teamId == null) {
+            return NO_TEAM;
+        }
+        Integer code = teamCodeById.get(teamId);
+        if (code != null) {
+            if (teamName != null) {
+                teamNames[code] = teamName;
+            }
+            return code;
+        }
+
+        if (teamCount == teamIds.length) {
+            int capacity = Math.max(16, teamCount * 2);
+            teamIds = Arrays.copyOf(teamIds, capacity);
+            teamNames = Arrays.copyOf(teamNames, capacity);
+        }
+        teamIds[teamCount] = teamId;
+        teamNames[teamCount] = teamName;
+        teamCodeById.put(teamId, teamCount);
+        teamRows.add(new BitSet());
+        return teamCount++;
+    }
+
+    // 팀명은 유일하지 않을 수 있으므로 같은 이름의 팀 코드들을 모두 합친다. (팀 수는 적다)
+    private BitSet teamNameRows(String teamName) {
+        BitSet rows = new BitSet();
+        for (int code = 0; code < teamCount; code++) {
+            if (teamName.equals(teamNames[code])) {
+                rows.or(teamRows.get(code));
+            }
+        }
+        return rows;
+    }
+
+    private BitSet ageRangeRows(Integer ageGoe, Integer ageLoe) {
+        long from = ageGoe != null ? (long) ageGoe << 32 : Long.MIN_VALUE;
+        long to = ageLoe != null ? ((long) ageLoe << 32) | 0xFFFFFFFFL : Long.MAX_VALUE;
+
+        BitSet rows = new BitSet(size);
+        for (int i = lowerBound(ageKeys, ageKeyCount, from); i < ageKeyCount && ageKeys[i] <= to; i++) {
+            rows.set((int) ageKeys[i]);
+        }
+        return rows;
+    }
+
+    // [firstNewRow, size) row 들의 키만 정렬해서 기존 키와 병합한다. O(n + k log k)
+    private void mergeAgeKeys(int firstNewRow) {
+        int added = size - firstNewRow;
+        if (added == 0) {
+            return;
+        }
+        long[] newKeys = new long[added];
+        for (int i = 0; i < added; i++) {
+            newKeys[i] = ageKey(ages[firstNewRow + i], firstNewRow + i);
+        }
+        Arrays.sort(newKeys);
+
+        long[] merged = new long[ageKeyCount + added];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < ageKeyCount && j < added) {
+            merged[k++] = ageKeys[i] <= newKeys[j] ? ageKeys[i++] : newKeys[j++];
+        }
+        while (i < ageKeyCount) {
+            merged[k++] = ageKeys[i++];
+        }
+        while (j < added) {
+            merged[k++] = newKeys[j++];
+        }
+        ageKeys = merged;
+        ageKeyCount = merged.length;
+    }
+
+    // 키 하나를 빼고 새 자리에 넣는다. 사이에 있는 키들만 한 칸씩 밀린다.
+    private void moveAgeKey(long oldKey, long newKey) {
+        int from = Arrays.binarySearch(ageKeys, 0, ageKeyCount, oldKey);
+        if (from < 0) {
+            return;
+        }
+        System.arraycopy(ageKeys, from + 1, ageKeys, from, ageKeyCount - from - 1);
+        int to = lowerBound(ageKeys, ageKeyCount - 1, newKey);
+        System.arraycopy(ageKeys, to, ageKeys, to + 1, ageKeyCount - 1 - to);
+        ageKeys[to] = newKey;
+    }
+
+    private static long ageKey(int age, int row) {
+        return ((long) age << 32) | row;
+    }
+
+    private static int lowerBound(long[] keys, int length, long key) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void and(BitSet result, BitSet rows) {
+        if (rows == null) {
+            result.clear();
+        } else {
+            result.and(rows);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.repository.index;
+
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 커밋된 Member, Team 변경을 MemberColumnIndex 에 반영하는 하이버네이트 이벤트 리스너
+ * post-commit 이벤트라서 롤백된 트랜잭션의 변경은 인덱스에 들어가지 않는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "querydsl.member-index", name = "enabled", havingValue = "true")
+public class MemberIndexEventListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final MemberColumnIndex index;
+
+    public MemberIndexEventListener(EntityManagerFactory emf, MemberColumnIndex index) {
+        this.emf = emf;
+        this.index = index;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        apply(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        apply(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            index.remove((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return entityClass == Member.class || entityClass == Team.class;
+    }
+
+    private void apply(Object entity) {
+        if (entity instanceof Team) {
+            Team team = (Team) entity;
+            index.renameTeam(team.getId(), team.getName());
+        } else if (entity instanceof Member) {
+            Member member = (Member) entity;
+            Team team = member.getTeam();
+            // 팀이 프록시면 id 만 꺼내고(초기화 X) 이름은 인덱스 사전의 것을 쓴다.
+            Long teamId = team != null ? team.getId() : null;
+            String teamName = team != null && Hibernate.isInitialized(team) ? team.getName() : null;
+            index.upsert(member.getId(), member.getVersion(), member.getUsername(), member.getAge(), teamId, teamName);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberColumnIndex 적재/저장
+ * 1. 시작할 때 스냅샷 파일이 있으면 스냅샷 + DB 와 (id, version) 을 비교해서 바뀐 회원만 읽는다. (findAll 전체 적재 X)
+ * 2. 스냅샷이 없거나 깨졌으면 DB 에서 전체 적재
+ * 3. 종료할 때 스냅샷을 다시 쓴다.
+ *
+ * querydsl.member-index.snapshot-path 가 비어있으면 스냅샷 없이 매번 DB 에서 전체 적재한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.member-index", name = "enabled", havingValue = "true")
+public class MemberIndexLoader {
+
+    private final MemberColumnIndex index;
+    private final Path snapshotPath;
+
+    public MemberIndexLoader(MemberColumnIndex index,
+                             @Value("${querydsl.member-index.snapshot-path:}") String snapshotPath) {
+        this.index = index;
+        this.snapshotPath = hasText(snapshotPath) ? Paths.get(snapshotPath) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            try {
+                index.restore(MemberIndexSnapshot.read(snapshotPath));
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("member index 스냅샷을 읽지 못해 DB 에서 전체 적재합니다. path={}", snapshotPath, e);
+            }
+        }
+        index.reload();
+    }
+
+    @PreDestroy
+    public void save() {
+        if (snapshotPath == null || !index.isLoaded()) {
+            return;
+        }
+        try {
+            MemberIndexSnapshot.write(snapshotPath, index.columns());
+        } catch (IOException e) {
+            log.warn("member index 스냅샷 저장 실패. path={}", snapshotPath, e);
+        }
+    }
+}
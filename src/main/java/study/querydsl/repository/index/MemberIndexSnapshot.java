@@ -0,0 +1,188 @@
+package study.querydsl.repository.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MemberColumnIndex 스냅샷 파일 포맷 (빠른 재시작용)
+ *
+ * [header]   magic(int) version(int)
+ * [team]     teamCount(int) { teamId(long) name(string) } * teamCount
+ * [username] dictSize(int) { username(string) } * dictSize
+ * [member]   rowCount(int) { memberId(long) memberVersion(long) age(int) teamCode(int) usernameCode(int) } * rowCount
+ *
+ * string 은 길이(int, null 이면 -1) + UTF-8 바이트, 코드가 없으면 -1
+ * 읽을 때는 FileChannel.map 으로 매핑해서 row 마다 객체를 만들지 않고 바로 primitive 배열에 채운다.
+ */
+class MemberIndexSnapshot {
+
+    static final int MAGIC = 0x4D494458; // "MIDX"
+    static final int VERSION = 2; // 2: member version 추가 (복원 시 DB 와 비교)
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private MemberIndexSnapshot() {
+    }
+
+    /**
+     * 인덱스 컬럼을 옮겨 담는 그릇
+     * usernames 는 사전 문자열을 공유하므로 row 마다 String 이 생기지 않는다.
+     */
+    static class Columns {
+        int teamCount;
+        long[] teamIds;
+        String[] teamNames;
+        int rowCount;
+        long[] ids;
+        long[] versions;
+        int[] ages;
+        int[] teamCodes;
+        String[] usernames;
+    }
+
+    /**
+     * 임시 파일에 다 쓴 뒤 교체하므로 쓰는 도중 죽어도 기존 스냅샷은 깨지지 않는다.
+     */
+    static void write(Path path, Columns columns) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+            buffer.putInt(MAGIC).putInt(VERSION);
+
+            buffer.putInt(columns.teamCount);
+            for (int code = 0; code < columns.teamCount; code++) {
+                ensure(channel, buffer, Long.BYTES);
+                buffer.putLong(columns.teamIds[code]);
+                putString(channel, buffer, columns.teamNames[code]);
+            }
+
+            Map<String, Integer> dictionary = new HashMap<>();
+            int[] usernameCodes = new int[columns.rowCount];
+            for (int row = 0; row < columns.rowCount; row++) {
+                String username = columns.usernames[row];
+                usernameCodes[row] = username == null ? -1
+                        : dictionary.computeIfAbsent(username, k -> dictionary.size());
+            }
+            String[] dictionaryValues = new String[dictionary.size()];
+            dictionary.forEach((username, code) -> dictionaryValues[code] = username);
+
+            ensure(channel, buffer, Integer.BYTES);
+            buffer.putInt(dictionaryValues.length);
+            for (String username : dictionaryValues) {
+                putString(channel, buffer, username);
+            }
+
+            ensure(channel, buffer, Integer.BYTES);
+            buffer.putInt(columns.rowCount);
+            for (int row = 0; row < columns.rowCount; row++) {
+                ensure(channel, buffer, Long.BYTES * 2 + Integer.BYTES * 3);
+                buffer.putLong(columns.ids[row])
+                        .putLong(columns.versions[row])
+                        .putInt(columns.ages[row])
+                        .putInt(columns.teamCodes[row])
+                        .putInt(usernameCodes[row]);
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Columns read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("2GB 를 넘는 스냅샷은 한번에 매핑할 수 없습니다: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("member index snapshot 파일이 아닙니다: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("지원하지 않는 스냅샷 버전입니다: " + version);
+            }
+
+            Columns columns = new Columns();
+            columns.teamCount = buffer.getInt();
+            columns.teamIds = new long[Math.max(16, columns.teamCount)];
+            columns.teamNames = new String[columns.teamIds.length];
+            for (int code = 0; code < columns.teamCount; code++) {
+                columns.teamIds[code] = buffer.getLong();
+                columns.teamNames[code] = getString(buffer);
+            }
+
+            String[] dictionary = new String[buffer.getInt()];
+            for (int code = 0; code < dictionary.length; code++) {
+                dictionary[code] = getString(buffer);
+            }
+
+            columns.rowCount = buffer.getInt();
+            int capacity = Math.max(16, columns.rowCount);
+            columns.ids = new long[capacity];
+            columns.versions = new long[capacity];
+            columns.ages = new int[capacity];
+            columns.teamCodes = new int[capacity];
+            columns.usernames = new String[capacity];
+            for (int row = 0; row < columns.rowCount; row++) {
+                columns.ids[row] = buffer.getLong();
+                columns.versions[row] = buffer.getLong();
+                columns.ages[row] = buffer.getInt();
+                columns.teamCodes[row] = buffer.getInt();
+                int usernameCode = buffer.getInt();
+                columns.usernames[row] = usernameCode == -1 ? null : dictionary[usernameCode];
+            }
+            return columns;
+        }
+    }
+
+    private static void putString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        if (value == null) {
+            ensure(channel, buffer, Integer.BYTES);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(channel, buffer, Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 버퍼에 bytes 만큼 자리가 없으면 파일로 내보낸다.
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (bytes > buffer.capacity()) {
+            throw new IOException("스냅샷 항목이 너무 큽니다: " + bytes + " bytes");
+        }
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
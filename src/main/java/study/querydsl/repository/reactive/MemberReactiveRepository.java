@@ -0,0 +1,88 @@
+package study.querydsl.repository.reactive;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.Member.normalizeUsername;
+
+/**
+ * MemberRepositoryCustom.search 와 같은 조건을 R2DBC(논블로킹)로 조회
+ *
+ * querydsl 은 JDBC(JPA) 전용이라 SQL 은 직접 작성하고, 조건 값은 전부 바인드 파라미터로 넘긴다.
+ * 결과는 Flux 로 한 건씩 흘려보내므로 구독자가 느리면(backpressure) DB 에서도 그만큼만 읽어온다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberReactiveRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<String> where = new ArrayList<>();
+        Map<String, Object> binds = new LinkedHashMap<>();
+
+        if (hasText(condition.getUsername())) {
+            if (condition.isUsernameIgnoreCase()) {
+                where.add("m.username_lower = :username");
+                binds.put("username", normalizeUsername(condition.getUsername()));
+            } else {
+                where.add("m.username = :username");
+                binds.put("username", condition.getUsername());
+            }
+        }
+        if (hasText(condition.getUsernameStartsWith())) {
+            String prefix = condition.getUsernameStartsWith();
+            where.add((condition.isUsernameIgnoreCase() ? "m.username_lower" : "m.username") + " like :usernamePrefix escape '!'");
+            binds.put("usernamePrefix", escapeLike(condition.isUsernameIgnoreCase() ? normalizeUsername(prefix) : prefix) + "%");
+        }
+        if (hasText(condition.getTeamName())) {
+            where.add("t.name = :teamName");
+            binds.put("teamName", condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            where.add("m.age >= :ageGoe");
+            binds.put("ageGoe", condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            where.add("m.age <= :ageLoe");
+            binds.put("ageLoe", condition.getAgeLoe());
+        }
+
+        String sql = "select m.member_id, m.username, m.age, t.id as team_id, t.name as team_name"
+                + " from member m left join team t on m.team_id = t.id"
+                + (where.isEmpty() ? "" : " where " + String.join(" and ", where))
+                + " order by m.member_id";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (Map.Entry<String, Object> bind : binds.entrySet()) {
+            spec = spec.bind(bind.getKey(), bind.getValue());
+        }
+        return spec.map((row, metadata) -> toDto(row)).all();
+    }
+
+    private static MemberTeamDto toDto(Row row) {
+        Integer age = row.get("age", Integer.class);
+        return new MemberTeamDto(
+                row.get("member_id", Long.class),
+                row.get("username", String.class),
+                age != null ? age : 0,
+                row.get("team_id", Long.class),
+                row.get("team_name", String.class));
+    }
+
+    // querydsl startsWith 와 같이 '!' 를 escape 문자로 사용
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
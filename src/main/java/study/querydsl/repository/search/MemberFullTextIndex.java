@@ -0,0 +1,306 @@
+package study.querydsl.repository.search;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.repository.MembersTeamReassignedEvent;
+import study.querydsl.repository.sql.MembersBulkInsertedEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원명, 팀명 전문 검색 인덱스 (Lucene, 로컬 디스크)
+ *
+ * like '%xxx%' 는 테이블 풀스캔이므로, 1~3 글자 n-gram 으로 쪼개서 색인하고 검색어도 같은 방식으로 쪼개서 찾는다.
+ * 오타 허용은 소문자로 통째로 저장한 키 필드에 FuzzyQuery(편집 거리 2 까지)로 찾는다.
+ *
+ * 변경 반영은 near-real-time 배치 방식
+ * 1. 커밋 이벤트(MemberFullTextEventListener)는 바뀐 memberId / teamId 만 쌓아둔다.
+ * 2. refresh-interval 마다 쌓인 id 들을 IN 쿼리로 한번에 다시 읽어서 색인하고 searcher 를 갱신한다.
+ *    (DB 에 없는 memberId 는 삭제된 것이므로 색인에서도 지운다)
+ *
+ * 띄울 때마다 색인을 새로 만든다. (ddl-auto: create 로 테이블이 다시 만들어지면 member id 가 재사용되므로 이전 색인은 믿을 수 없다)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.full-text", name = "enabled", havingValue = "true")
+public class MemberFullTextIndex {
+
+    private static final String ID = "id";
+    private static final String USERNAME = "username";
+    private static final String USERNAME_KEY = "username_key";
+    private static final String TEAM_ID = "team_id";
+    private static final String TEAM_NAME = "team_name";
+    private static final String TEAM_NAME_KEY = "team_name_key";
+
+    private static final int GRAM = 3;
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "member-full-text-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Set<Long> changedMemberIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> changedTeamIds = ConcurrentHashMap.newKeySet();
+
+    public MemberFullTextIndex(JPAQueryFactory queryFactory,
+                               @Value("${querydsl.full-text.index-dir}") String indexDir,
+                               @Value("${querydsl.full-text.refresh-interval-ms:1000}") long refreshIntervalMs) throws IOException {
+        this.queryFactory = queryFactory;
+        // CREATE: 이전 실행의 색인은 열자마자 버린다. (rebuild 전까지 옛 문서가 검색되지 않도록)
+        this.writer = new IndexWriter(FSDirectory.open(Paths.get(indexDir)),
+                new IndexWriterConfig(new NGramAnalyzer()).setOpenMode(OpenMode.CREATE));
+        this.searcherManager = new SearcherManager(writer, null);
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * DB 전체를 다시 색인한다. (띄울 때)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() throws IOException {
+        writer.deleteAll();
+        long lastId = 0L;
+        while (true) {
+            List<Tuple> rows = queryFactory
+                    .select(member.id, member.username, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.gt(lastId))
+                    .orderBy(member.id.asc())
+                    .limit(IN_CHUNK_SIZE)
+                    .fetch();
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Tuple row : rows) {
+                writer.updateDocument(new Term(ID, String.valueOf(row.get(member.id))), toDocument(row));
+            }
+            lastId = rows.get(rows.size() - 1).get(member.id);
+        }
+        writer.commit();
+        searcherManager.maybeRefresh();
+    }
+
+    public void memberChanged(Long memberId) {
+        changedMemberIds.add(memberId);
+    }
+
+    public void teamChanged(Long teamId) {
+        changedTeamIds.add(teamId);
+    }
+
+    // 대량 저장은 하이버네이트 이벤트가 없으므로 커밋 후 이벤트로 받는다.
+    @TransactionalEventListener
+    public void onBulkInserted(MembersBulkInsertedEvent event) {
+        changedMemberIds.addAll(event.getIds());
+    }
+
+    @TransactionalEventListener
+    public void onTeamReassigned(MembersTeamReassignedEvent event) {
+        changedMemberIds.addAll(event.getIds());
+    }
+
+    /**
+     * 검색어와 비슷한 회원 id 를 점수 순으로 돌려준다.
+     */
+    public List<Long> search(String q, int limit) {
+        String keyword = q.trim().toLowerCase(Locale.ROOT);
+        if (keyword.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Query query = new BooleanQuery.Builder()
+                .add(new BoostQuery(substring(USERNAME, keyword), 3f), BooleanClause.Occur.SHOULD)
+                .add(substring(TEAM_NAME, keyword), BooleanClause.Occur.SHOULD)
+                .add(new BoostQuery(new FuzzyQuery(new Term(USERNAME_KEY, keyword)), 2f), BooleanClause.Occur.SHOULD)
+                .add(new FuzzyQuery(new Term(TEAM_NAME_KEY, keyword)), BooleanClause.Occur.SHOULD)
+                .build();
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, limit);
+                List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    ids.add(Long.valueOf(searcher.doc(scoreDoc.doc).get(ID)));
+                }
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 쌓인 변경을 한번에 반영 (refresh-interval 마다 실행, 테스트에서는 직접 호출)
+     */
+    public synchronized void refresh() {
+        Set<Long> memberIds = drain(changedMemberIds);
+        Set<Long> teamIds = drain(changedTeamIds);
+        if (memberIds.isEmpty() && teamIds.isEmpty()) {
+            return;
+        }
+        try {
+            Set<Long> found = new HashSet<>();
+            for (List<Long> chunk : chunks(new ArrayList<>(memberIds))) {
+                reindex(queryFactory
+                        .select(member.id, member.username, team.id, team.name)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(member.id.in(chunk))
+                        .fetch(), found);
+            }
+            for (List<Long> chunk : chunks(new ArrayList<>(teamIds))) {
+                reindex(queryFactory
+                        .select(member.id, member.username, team.id, team.name)
+                        .from(member)
+                        .join(member.team, team)
+                        .where(team.id.in(chunk))
+                        .fetch(), found);
+            }
+            for (Long memberId : memberIds) {
+                if (!found.contains(memberId)) {
+                    writer.deleteDocuments(new Term(ID, String.valueOf(memberId)));
+                }
+            }
+
+            writer.commit();
+            searcherManager.maybeRefresh();
+        } catch (Exception e) {
+            // 다음 주기에 다시 시도
+            changedMemberIds.addAll(memberIds);
+            changedTeamIds.addAll(teamIds);
+            log.warn("member full-text 색인 갱신 실패", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        refresher.shutdown();
+        refresher.awaitTermination(10, TimeUnit.SECONDS);
+        refresh();
+        searcherManager.close();
+        writer.close();
+    }
+
+    private void reindex(List<Tuple> rows, Set<Long> found) throws IOException {
+        for (Tuple row : rows) {
+            Long memberId = row.get(member.id);
+            found.add(memberId);
+            writer.updateDocument(new Term(ID, String.valueOf(memberId)), toDocument(row));
+        }
+    }
+
+    private Document toDocument(Tuple row) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(row.get(member.id)), Field.Store.YES));
+        String username = row.get(member.username);
+        if (username != null) {
+            document.add(new TextField(USERNAME, username, Field.Store.NO));
+            document.add(new StringField(USERNAME_KEY, username.toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        Long teamId = row.get(team.id);
+        String teamName = row.get(team.name);
+        if (teamId != null) {
+            document.add(new StringField(TEAM_ID, String.valueOf(teamId), Field.Store.NO));
+        }
+        if (teamName != null) {
+            document.add(new TextField(TEAM_NAME, teamName, Field.Store.NO));
+            document.add(new StringField(TEAM_NAME_KEY, teamName.toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        return document;
+    }
+
+    // 검색어를 색인과 같은 n-gram 으로 잘라서 전부 포함하는 문서를 찾는다. (부분 문자열 검색)
+    private static Query substring(String field, String keyword) {
+        if (keyword.length() <= GRAM) {
+            return new TermQuery(new Term(field, keyword));
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (int i = 0; i + GRAM <= keyword.length(); i++) {
+            builder.add(new TermQuery(new Term(field, keyword.substring(i, i + GRAM))), BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+    private static Set<Long> drain(Set<Long> changed) {
+        Set<Long> drained = new HashSet<>();
+        for (Long id : changed) {
+            if (changed.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + IN_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * 1~3 글자 n-gram + 소문자
+     */
+    static class NGramAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new NGramTokenizer(1, GRAM);
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.WindowFunction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberAgeRankDto;
+import study.querydsl.dto.MemberAgeVsTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.sql.SMember.member;
+import static study.querydsl.entity.sql.STeam.team;
+
+/**
+ * 윈도우 함수(OVER (PARTITION BY team_id ...))로 팀 단위 집계를 한번에 조회 (querydsl-sql)
+ *
+ * JPQL 은 윈도우 함수가 없어서 row 마다 상관 서브쿼리(JPAExpressions)로 평균, 최대값을 구해야 한다. (QuerydslBasicTest.subQuery)
+ * 윈도우 함수는 테이블을 한번 읽으면서 파티션별 집계를 같이 계산한다.
+ */
+@Repository
+@Transactional(readOnly = true) // SpringConnectionProvider 는 트랜잭션 커넥션만 사용
+@RequiredArgsConstructor
+public class MemberAnalyticsRepository {
+
+    private final SQLQueryFactory sqlQueryFactory;
+
+    /**
+     * 팀 안에서 나이 순위 rank() over (partition by team_id order by age desc)
+     */
+    public List<MemberAgeRankDto> ageRankInTeam() {
+        WindowFunction<Long> rank = SQLExpressions.rank().over()
+                .partitionBy(member.teamId)
+                .orderBy(member.age.desc());
+
+        List<Tuple> rows = sqlQueryFactory
+                .select(member.memberId, member.username, member.age, member.teamId, team.name, rank)
+                .from(member)
+                .join(team).on(member.teamId.eq(team.id))
+                .orderBy(member.teamId.asc(), member.age.desc(), member.memberId.asc())
+                .fetch();
+
+        List<MemberAgeRankDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new MemberAgeRankDto(row.get(member.memberId), row.get(member.username), row.get(member.age),
+                    row.get(member.teamId), row.get(team.name), row.get(rank)));
+        }
+        return result;
+    }
+
+    /**
+     * 회원 나이 vs 팀 평균 나이 avg(age) over (partition by team_id)
+     */
+    public List<MemberAgeVsTeamDto> ageVsTeamAverage() {
+        WindowFunction<Double> teamAvgAge = SQLExpressions.avg(member.age.castToNum(Double.class)).over()
+                .partitionBy(member.teamId);
+
+        List<Tuple> rows = sqlQueryFactory
+                .select(member.memberId, member.username, member.age, member.teamId, team.name, teamAvgAge)
+                .from(member)
+                .join(team).on(member.teamId.eq(team.id))
+                .orderBy(member.teamId.asc(), member.memberId.asc())
+                .fetch();
+
+        List<MemberAgeVsTeamDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new MemberAgeVsTeamDto(row.get(member.memberId), row.get(member.username), row.get(member.age),
+                    row.get(member.teamId), row.get(team.name), row.get(teamAvgAge)));
+        }
+        return result;
+    }
+
+    /**
+     * 팀별 나이 많은 순 상위 n 명
+     * select * from (select ..., row_number() over (partition by team_id order by age desc, member_id) rn ...) ranked where rn <= n
+     */
+    public List<MemberAgeRankDto> topNPerTeam(int n) {
+        PathBuilder<Tuple> ranked = new PathBuilder<>(Tuple.class, "ranked");
+        NumberPath<Long> memberId = ranked.getNumber("member_id", Long.class);
+        StringPath username = ranked.getString("username");
+        NumberPath<Integer> age = ranked.getNumber("age", Integer.class);
+        NumberPath<Long> teamId = ranked.getNumber("team_id", Long.class);
+        StringPath teamName = ranked.getString("team_name");
+        NumberPath<Long> rowNumber = ranked.getNumber("rn", Long.class);
+
+        List<Tuple> rows = sqlQueryFactory
+                .select(memberId, username, age, teamId, teamName, rowNumber)
+                .from(SQLExpressions
+                        .select(member.memberId.as("member_id"),
+                                member.username.as("username"),
+                                member.age.as("age"),
+                                member.teamId.as("team_id"),
+                                team.name.as("team_name"),
+                                SQLExpressions.rowNumber().over()
+                                        .partitionBy(member.teamId)
+                                        .orderBy(member.age.desc(), member.memberId.asc())
+                                        .as("rn"))
+                        .from(member)
+                        .join(team).on(member.teamId.eq(team.id)), ranked)
+                .where(rowNumber.loe((long) n))
+                .orderBy(teamId.asc(), rowNumber.asc())
+                .fetch();
+
+        List<MemberAgeRankDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new MemberAgeRankDto(row.get(memberId), row.get(username), row.get(age),
+                    row.get(teamId), row.get(teamName), row.get(rowNumber)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.dml.SQLInsertClause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberBulkInsertResult;
+import study.querydsl.dto.MemberInsertDto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.Member.normalizeUsername;
+import static study.querydsl.entity.sql.SMember.member;
+
+/**
+ * 회원 대량 저장 (querydsl-sql insert)
+ *
+ * MemberRepository.save 는 건마다 시퀀스 조회, persist, 연관관계 편의 메서드(changeTeam), flush 시 insert 를 거친다.
+ * 여기서는
+ * 1. id 는 hibernate_sequence 에서 필요한 만큼 한번에 받아오고 (JPA 가 저장하는 회원과 id 가 겹치지 않는다)
+ * 2. batch-size 건씩 insert into member values (...), (...), ... 한 문장으로 저장한다. (addBatch + setBatchToBulk)
+ * 영속성 컨텍스트를 거치지 않으므로 username_lower 도 여기서 직접 채운다.
+ *
+ * 커밋 후 MembersBulkInsertedEvent 를 발행한다. (인메모리 인덱스, 전문 검색 색인 반영용)
+ */
+@Slf4j
+@Repository
+public class MemberBulkInsertRepository {
+
+    private static final int ID_BLOCK_SIZE = 10_000; // 시퀀스 한번에 받아오는 최대 개수
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public MemberBulkInsertRepository(SQLQueryFactory sqlQueryFactory, ApplicationEventPublisher eventPublisher,
+                                      @Value("${querydsl.bulk-insert.batch-size:1000}") int batchSize) {
+        this.sqlQueryFactory = sqlQueryFactory;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public MemberBulkInsertResult insert(List<MemberInsertDto> rows) {
+        return insert(rows, batchSize);
+    }
+
+    @Transactional
+    public MemberBulkInsertResult insert(List<MemberInsertDto> rows, int batchSize) {
+        long start = System.nanoTime();
+        List<Long> ids = allocateIds(rows.size());
+
+        SQLInsertClause insert = newInsert();
+        for (int i = 0; i < rows.size(); i++) {
+            MemberInsertDto row = rows.get(i);
+            insert.set(member.memberId, ids.get(i))
+                    .set(member.username, row.getUsername())
+                    .set(member.usernameLower, normalizeUsername(row.getUsername()))
+                    .set(member.age, row.getAge())
+                    .set(member.teamId, row.getTeamId())
+                    .set(member.version, 0L) // JPA persist 와 같은 초기 버전
+                    .addBatch();
+            if (insert.getBatchCount() >= batchSize) {
+                insert.execute();
+                insert = newInsert();
+            }
+        }
+        if (insert.getBatchCount() > 0) {
+            insert.execute();
+        }
+
+        eventPublisher.publishEvent(new MembersBulkInsertedEvent(ids, rows));
+
+        MemberBulkInsertResult result = new MemberBulkInsertResult(rows.size(), System.nanoTime() - start);
+        log.info("member bulk insert rows={} elapsed={}ms rows/sec={}",
+                result.getRows(), result.getElapsedMillis(), (long) result.getRowsPerSecond());
+        return result;
+    }
+
+    private SQLInsertClause newInsert() {
+        SQLInsertClause insert = sqlQueryFactory.insert(member);
+        insert.setBatchToBulk(true); // addBatch 한 건들을 multi-row VALUES 한 문장으로
+        return insert;
+    }
+
+    /**
+     * hibernate_sequence 에서 count 개의 id 를 받아온다. (H2: system_range 로 한 문장에 여러 개)
+     */
+    private List<Long> allocateIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        Connection connection = sqlQueryFactory.getConnection(); // 현재 트랜잭션 커넥션 (닫지 않는다)
+        try {
+            while (ids.size() < count) {
+                int block = Math.min(ID_BLOCK_SIZE, count - ids.size());
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "select next value for hibernate_sequence from system_range(1, ?)")) {
+                    statement.setInt(1, block);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+            return ids;
+        } catch (SQLException e) {
+            throw sqlQueryFactory.getConfiguration().translate(e);
+        }
+    }
+}
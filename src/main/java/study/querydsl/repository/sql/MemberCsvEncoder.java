@@ -0,0 +1,145 @@
+package study.querydsl.repository.sql;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 회원 row 를 CSV 로 direct ByteBuffer 에 바로 인코딩해서 채널로 내보낸다.
+ * 숫자는 자릿수를 직접 쓰고, 문자열은 UTF-8 로 직접 인코딩해서 row 마다 String, byte[] 를 만들지 않는다.
+ * 쉼표, 따옴표, 줄바꿈이 들어간 값만 따옴표로 감싼다. (RFC 4180)
+ *
+ * 버퍼를 재사용하므로 스레드 하나에서만 사용한다.
+ */
+class MemberCsvEncoder {
+
+    static final String HEADER = "memberId,username,age,teamId,teamName\n";
+
+    private static final int MAX_LONG_DIGITS = 20;
+    private static final int MIN_BUFFER_SIZE = 64;
+    private static final byte[] LONG_MIN = "-9223372036854775808".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[MAX_LONG_DIGITS];
+    private long written;
+
+    MemberCsvEncoder(WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("bufferSize 는 " + MIN_BUFFER_SIZE + " 이상이어야 합니다: " + bufferSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void writeHeader() throws IOException {
+        for (int i = 0; i < HEADER.length(); i++) {
+            ensure(1);
+            buffer.put((byte) HEADER.charAt(i));
+        }
+    }
+
+    void writeRow(long memberId, String username, int age, Long teamId, String teamName) throws IOException {
+        writeLong(memberId);
+        writeByte(',');
+        writeString(username);
+        writeByte(',');
+        writeLong(age);
+        writeByte(',');
+        if (teamId != null) {
+            writeLong(teamId);
+        }
+        writeByte(',');
+        writeString(teamName);
+        writeByte('\n');
+    }
+
+    /**
+     * 남은 버퍼를 내보낸다. 지금까지 쓴 바이트 수를 돌려준다.
+     */
+    long flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensure(MAX_LONG_DIGITS + 1);
+        if (value == Long.MIN_VALUE) {
+            buffer.put(LONG_MIN);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int pos = MAX_LONG_DIGITS;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, pos, MAX_LONG_DIGITS - pos);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = needsQuote(value);
+        if (quote) {
+            writeByte('"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            ensure(4);
+            if (c == '"') {
+                buffer.put((byte) '"').put((byte) '"');
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)))
+                        .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?'); // 짝이 안 맞는 surrogate
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)))
+                        .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        if (quote) {
+            writeByte('"');
+        }
+    }
+
+    private static boolean needsQuote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
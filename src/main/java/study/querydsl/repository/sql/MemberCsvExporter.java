@@ -0,0 +1,121 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.StatementOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.TeamIdCache;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.sql.SMember.member;
+import static study.querydsl.entity.sql.STeam.team;
+import static study.querydsl.repository.support.MemberPredicates.*;
+
+/**
+ * 회원 검색 결과 CSV 내보내기 (memberId,username,age,teamId,teamName)
+ *
+ * 1. search 와 같은 조건의 쿼리를 fetch-size 단위로 끊어 받으면서 ResultSet 을 앞으로만 읽는다. (전체를 List 로 올리지 않음)
+ * 2. row 마다 DTO, String 을 만들지 않고 MemberCsvEncoder 의 direct ByteBuffer 에 바로 인코딩해서 임시 파일로 내보낸다.
+ * 3. 다 쓴 파일은 transfer 로 FileChannel.transferTo 해서 응답에 흘려보낸다.
+ * -> 힙에는 fetch-size 건 정도만 올라오고, DB 커넥션은 파일을 다 쓰면 바로 돌려준다. (느린 클라이언트가 커넥션을 잡지 않음)
+ */
+@Slf4j
+@Component
+@Transactional(readOnly = true) // SpringConnectionProvider 는 트랜잭션 커넥션만 사용
+public class MemberCsvExporter {
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final TeamIdCache teamIdCache;
+    private final int fetchSize;
+    private final int bufferSize;
+
+    public MemberCsvExporter(SQLQueryFactory sqlQueryFactory, TeamIdCache teamIdCache,
+                             @Value("${querydsl.csv-export.fetch-size:10000}") int fetchSize,
+                             @Value("${querydsl.csv-export.buffer-size-kb:256}") int bufferSizeKb) {
+        this.sqlQueryFactory = sqlQueryFactory;
+        this.teamIdCache = teamIdCache;
+        this.fetchSize = fetchSize;
+        this.bufferSize = bufferSizeKb * 1024;
+    }
+
+    /**
+     * 검색 결과를 target 파일에 CSV 로 쓰고 row 수를 돌려준다.
+     */
+    public long exportCsv(MemberSearchCondition condition, Path target) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MemberCsvEncoder encoder = new MemberCsvEncoder(channel, bufferSize);
+            encoder.writeHeader();
+
+            long rows = 0;
+            List<Long> teamIds = hasText(condition.getTeamName()) ? teamIdCache.findIds(condition.getTeamName()) : null;
+            if (teamIds == null || !teamIds.isEmpty()) { // 없는 팀명이면 헤더만
+                rows = writeRows(condition, teamIds, encoder);
+            }
+            long bytes = encoder.flush();
+
+            long elapsed = System.nanoTime() - start;
+            log.info("member csv export rows={} bytes={} elapsed={}ms rows/sec={}",
+                    rows, bytes, elapsed / 1_000_000, elapsed > 0 ? rows * 1_000_000_000L / elapsed : rows);
+            return rows;
+        }
+    }
+
+    /**
+     * 파일 전체를 out 으로 보낸다. 보낸 바이트 수를 돌려준다.
+     * out 이 소켓 채널이면 커널이 바로 복사(sendfile)하고, 그 외에는 JDK 가 매핑한 영역을 나눠서 쓴다.
+     */
+    public static long transfer(Path file, WritableByteChannel out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+            return size;
+        }
+    }
+
+    private long writeRows(MemberSearchCondition condition, List<Long> teamIds, MemberCsvEncoder encoder) throws IOException {
+        SQLQuery<?> query = sqlQueryFactory
+                .select(member.memberId, member.username, member.age, member.teamId, team.name)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.id))
+                .where(
+                        usernameEq(member, condition.getUsername(), condition.isUsernameIgnoreCase()),
+                        usernameStartsWith(member, condition.getUsernameStartsWith(), condition.isUsernameIgnoreCase()),
+                        teamIdIn(member, teamIds),
+                        ageGoe(member, condition.getAgeGoe()),
+                        ageLoe(member, condition.getAgeLoe())
+                )
+                .orderBy(member.memberId.asc());
+        query.setStatementOptions(StatementOptions.builder().setFetchSize(fetchSize).build());
+
+        long rows = 0;
+        try (ResultSet rs = query.getResults()) { // close 하면 statement 도 같이 닫힌다.
+            while (rs.next()) {
+                long teamId = rs.getLong(4);
+                encoder.writeRow(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        rs.wasNull() ? null : teamId, rs.getString(5));
+                rows++;
+            }
+        } catch (SQLException e) {
+            throw sqlQueryFactory.getConfiguration().translate(e);
+        }
+        return rows;
+    }
+}
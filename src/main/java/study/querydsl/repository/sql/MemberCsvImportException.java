@@ -0,0 +1,55 @@
+package study.querydsl.repository.sql;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * CSV 가져오기 중간 실패 (MemberCsvImporter)
+ * 묶음마다 커밋하므로 committedRows 건은 이미 저장되어 있다.
+ * 같은 파일을 pendingRanges 로만 다시 가져오면 중복 없이 이어서 저장된다. importCsv(path, getPendingRanges())
+ */
+public class MemberCsvImportException extends IllegalStateException {
+
+    private final long committedRows;
+    private final List<long[]> pendingRanges;
+
+    public MemberCsvImportException(Path path, long committedRows, List<long[]> pendingRanges, Throwable cause) {
+        super("CSV 가져오기 실패: " + path + " 저장된 건수=" + committedRows
+                + " 남은 범위=" + format(pendingRanges), cause);
+        this.committedRows = committedRows;
+        this.pendingRanges = Collections.unmodifiableList(new ArrayList<>(pendingRanges));
+    }
+
+    public long getCommittedRows() {
+        return committedRows;
+    }
+
+    /**
+     * 저장 안 된 [start, end) 바이트 범위 목록 (줄의 시작끼리)
+     */
+    public List<long[]> getPendingRanges() {
+        return pendingRanges;
+    }
+
+    /**
+     * "start-end,start-end" (querydsl.csv-import.ranges, /v1/members/import?ranges= 에 그대로 넘길 수 있는 형식)
+     */
+    public static String format(List<long[]> ranges) {
+        return ranges.stream().map(range -> range[0] + "-" + range[1]).collect(Collectors.joining(","));
+    }
+
+    public static List<long[]> parse(String ranges) {
+        List<long[]> result = new ArrayList<>();
+        for (String range : ranges.split(",")) {
+            String[] bounds = range.trim().split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("범위 형식은 start-end 입니다: " + range);
+            }
+            result.add(new long[]{Long.parseLong(bounds[0].trim()), Long.parseLong(bounds[1].trim())});
+        }
+        return result;
+    }
+}
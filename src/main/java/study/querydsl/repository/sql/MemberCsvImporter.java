@@ -0,0 +1,380 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberInsertDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 CSV 가져오기 (수 GB 파일용)
+ *
+ * 형식: username,age,teamName (teamName 은 비어 있을 수 있음, 첫 줄이 username 으로 시작하면 헤더로 보고 건너뜀)
+ * 따옴표로 감싼 필드(안에 쉼표가 있는 값)는 지원하지 않는다.
+ *
+ * 1. 파일을 chunk-size 단위로 나누되 경계는 다음 줄바꿈까지 밀어서 줄이 잘리지 않게 한다.
+ * 2. chunk 마다 FileChannel.map 으로 매핑해서 ForkJoinPool 에서 병렬로 파싱한다. 팀명은 미리 읽어둔 Map 으로 id 변환
+ * 3. 파싱한 row 는 batch-size 묶음으로 크기가 정해진 큐에 넣는다. 큐가 차면 파서가 기다린다. (backpressure)
+ * 4. 호출한 스레드가 큐에서 꺼내 MemberBulkInsertRepository 로 저장한다. (묶음마다 트랜잭션)
+ * -> 힙에는 큐 크기 * batch-size 건 정도만 올라오고, 매핑한 파일 영역은 힙 밖이다.
+ *
+ * 묶음마다 커밋하므로 중간에 실패하면 앞의 묶음들은 이미 저장되어 있다.
+ * chunk 하나는 파서 하나가 순서대로 큐에 넣으므로 chunk 마다 저장된 부분은 항상 앞쪽이다.
+ * -> 실패하면 MemberCsvImportException 에 저장 건수와 저장 안 된 바이트 범위를 담고, 그 범위만 다시 가져오면 중복이 없다.
+ */
+@Slf4j
+@Component
+public class MemberCsvImporter {
+
+    private static final long PROGRESS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberBulkInsertRepository memberBulkInsertRepository;
+    private final int parallelism;
+    private final long chunkSize;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    public MemberCsvImporter(JPAQueryFactory queryFactory, MemberBulkInsertRepository memberBulkInsertRepository,
+                             @Value("${querydsl.csv-import.parallelism:0}") int parallelism,
+                             @Value("${querydsl.csv-import.chunk-size-mb:64}") int chunkSizeMb,
+                             @Value("${querydsl.bulk-insert.batch-size:1000}") int batchSize,
+                             @Value("${querydsl.csv-import.queue-capacity:16}") int queueCapacity) {
+        this.queryFactory = queryFactory;
+        this.memberBulkInsertRepository = memberBulkInsertRepository;
+        if (chunkSizeMb <= 0 || chunkSizeMb >= 2048) {
+            throw new IllegalArgumentException("chunk-size-mb 는 1 ~ 2047 사이여야 합니다. (한번에 매핑 가능한 크기 2GB 미만)");
+        }
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSizeMb * 1024L * 1024L;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public MemberImportResult importCsv(Path path) throws IOException {
+        return importCsv(path, null);
+    }
+
+    /**
+     * 파일에서 ranges([start, end) 바이트 범위, 줄의 시작끼리)만 가져온다. null 이면 파일 전체
+     * 실패한 가져오기를 이어서 하려면 MemberCsvImportException.getPendingRanges() 를 넘긴다.
+     */
+    public MemberImportResult importCsv(Path path, List<long[]> ranges) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Long> teamIds = loadTeamIds();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            List<long[]> chunks = new ArrayList<>();
+            for (long[] range : ranges != null ? ranges : Collections.singletonList(new long[]{0, fileSize})) {
+                chunks.addAll(split(channel, range[0], Math.min(range[1], fileSize), chunkSize));
+            }
+            long size = 0;
+            long[] committedEnds = new long[chunks.size()]; // chunk 마다 여기까지 저장됨
+            for (int i = 0; i < chunks.size(); i++) {
+                size += chunks.get(i)[1] - chunks.get(i)[0];
+                committedEnds[i] = chunks.get(i)[0];
+            }
+
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+            AtomicInteger pendingChunks = new AtomicInteger(chunks.size());
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicBoolean aborted = new AtomicBoolean();
+            AtomicLong bytesParsed = new AtomicLong();
+            AtomicLong skipped = new AtomicLong();
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    int chunkIndex = i;
+                    long[] chunk = chunks.get(i);
+                    pool.execute(() -> {
+                        try {
+                            parseChunk(channel, chunkIndex, chunk[0], chunk[1], teamIds, queue, aborted, skipped);
+                            bytesParsed.addAndGet(chunk[1] - chunk[0]);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            pendingChunks.decrementAndGet();
+                        }
+                    });
+                }
+
+                long rows = 0;
+                try {
+                    long lastLog = System.nanoTime();
+                    while (true) {
+                        if (failure.get() != null) {
+                            throw failed(path, failure.get(), rows, chunks, committedEnds);
+                        }
+                        boolean parsingDone = pendingChunks.get() == 0;
+                        Batch batch = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (batch == null) {
+                            if (parsingDone && queue.isEmpty()) {
+                                break;
+                            }
+                            continue;
+                        }
+                        if (!batch.rows.isEmpty()) {
+                            memberBulkInsertRepository.insert(batch.rows, batchSize);
+                            rows += batch.rows.size();
+                        }
+                        committedEnds[batch.chunk] = batch.end;
+
+                        if (System.nanoTime() - lastLog > PROGRESS_LOG_INTERVAL_NANOS) {
+                            lastLog = System.nanoTime();
+                            log.info("member csv import {}% rows={} rows/sec={}",
+                                    size == 0 ? 100 : bytesParsed.get() * 100 / size, rows,
+                                    (long) (rows * 1e9 / (lastLog - start)));
+                        }
+                    }
+                    if (failure.get() != null) {
+                        throw failed(path, failure.get(), rows, chunks, committedEnds);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw failed(path, e, rows, chunks, committedEnds);
+                } catch (MemberCsvImportException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    throw failed(path, e, rows, chunks, committedEnds);
+                }
+
+                MemberImportResult result = new MemberImportResult(rows, skipped.get(), System.nanoTime() - start);
+                log.info("member csv import 완료 rows={} skipped={} elapsed={}ms rows/sec={}",
+                        result.getRows(), result.getSkipped(), result.getElapsedMillis(), (long) result.getRowsPerSecond());
+                return result;
+            } finally {
+                // 저장 중 실패하면 큐를 기다리는 파서들도 멈춘다.
+                aborted.set(true);
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * chunk 마다 저장 안 된 뒤쪽 범위, 이어지는 범위는 합친다.
+     */
+    private static MemberCsvImportException failed(Path path, Throwable cause, long committedRows,
+                                                   List<long[]> chunks, long[] committedEnds) {
+        List<long[]> pending = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            long from = committedEnds[i];
+            long to = chunks.get(i)[1];
+            if (from >= to) {
+                continue;
+            }
+            long[] last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+            if (last != null && last[1] == from) {
+                last[1] = to;
+            } else {
+                pending.add(new long[]{from, to});
+            }
+        }
+        return new MemberCsvImportException(path, committedRows, pending, cause);
+    }
+
+    /**
+     * 팀명 -> 팀 id (같은 이름이 여러 개면 id 가 작은 팀)
+     */
+    private Map<String, Long> loadTeamIds() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .orderBy(team.id.desc())
+                .fetch();
+        Map<String, Long> teamIds = new HashMap<>();
+        for (Tuple row : rows) {
+            teamIds.put(row.get(team.name), row.get(team.id));
+        }
+        return teamIds;
+    }
+
+    /**
+     * [start, end) 범위 목록, 경계는 줄의 시작
+     */
+    static List<long[]> split(FileChannel channel, long size, long chunkSize) throws IOException {
+        return split(channel, 0, size, chunkSize);
+    }
+
+    static List<long[]> split(FileChannel channel, long from, long to, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long start = from;
+        while (start < to) {
+            long end = start + chunkSize >= to ? to : nextLineStart(channel, start + chunkSize, to);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * 마지막에는 (비어 있어도) chunk 끝까지의 묶음을 넣어서 chunk 전체가 처리됐음을 알린다.
+     */
+    private void parseChunk(FileChannel channel, int chunk, long start, long end, Map<String, Long> teamIds,
+                            BlockingQueue<Batch> queue, AtomicBoolean aborted, AtomicLong skipped)
+            throws IOException, InterruptedException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int limit = buffer.limit();
+
+        List<MemberInsertDto> batch = new ArrayList<>(batchSize);
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            if (lineEnd > lineStart && !(start == 0 && lineStart == 0 && isHeader(buffer, lineStart, lineEnd))) {
+                MemberInsertDto row = parseLine(buffer, lineStart, lineEnd, teamIds);
+                if (row == null) {
+                    skipped.incrementAndGet();
+                } else {
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        put(queue, new Batch(chunk, Math.min(start + next, end), batch), aborted);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            lineStart = next;
+        }
+        put(queue, new Batch(chunk, end, batch), aborted);
+    }
+
+    private static void put(BlockingQueue<Batch> queue, Batch batch, AtomicBoolean aborted)
+            throws InterruptedException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (aborted.get()) {
+                throw new CancellationException("CSV 가져오기 중단");
+            }
+        }
+    }
+
+    private static boolean isHeader(ByteBuffer buffer, int from, int to) {
+        byte[] header = "username".getBytes(StandardCharsets.US_ASCII);
+        if (to - from < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (buffer.get(from + i) != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * username,age,teamName 한 줄 -> row, 형식이 틀리거나 없는 팀명이면 null
+     */
+    private static MemberInsertDto parseLine(ByteBuffer buffer, int from, int to, Map<String, Long> teamIds) {
+        int firstComma = indexOf(buffer, from, to, (byte) ',');
+        if (firstComma < 0) {
+            return null;
+        }
+        int secondComma = indexOf(buffer, firstComma + 1, to, (byte) ',');
+        int ageEnd = secondComma < 0 ? to : secondComma;
+
+        if (ageEnd == firstComma + 1) {
+            return null;
+        }
+        int age = 0;
+        for (int i = firstComma + 1; i < ageEnd; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9' || age > 100_000) {
+                return null;
+            }
+            age = age * 10 + (b - '0');
+        }
+
+        Long teamId = null;
+        if (secondComma >= 0 && secondComma + 1 < to) {
+            teamId = teamIds.get(decode(buffer, secondComma + 1, to));
+            if (teamId == null) {
+                return null;
+            }
+        }
+        return new MemberInsertDto(decode(buffer, from, firstComma), age, teamId);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * chunk 의 row 묶음, 저장하면 chunk 가 end(파일 위치, 다음 줄의 시작)까지 저장된 것
+     */
+    private static final class Batch {
+
+        private final int chunk;
+        private final long end;
+        private final List<MemberInsertDto> rows;
+
+        private Batch(int chunk, long end, List<MemberInsertDto> rows) {
+            this.chunk = chunk;
+            this.end = end;
+            this.rows = rows;
+        }
+    }
+}
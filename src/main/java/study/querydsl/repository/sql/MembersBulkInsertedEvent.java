@@ -0,0 +1,22 @@
+package study.querydsl.repository.sql;
+
+import lombok.Getter;
+import study.querydsl.dto.MemberInsertDto;
+
+import java.util.List;
+
+/**
+ * JPA 를 거치지 않고 저장된 회원들 (하이버네이트 이벤트가 없으므로 인덱스들은 이 이벤트로 반영한다)
+ * ids 와 rows 는 같은 순서
+ */
+@Getter
+public class MembersBulkInsertedEvent {
+
+    private final List<Long> ids;
+    private final List<MemberInsertDto> rows;
+
+    public MembersBulkInsertedEvent(List<Long> ids, List<MemberInsertDto> rows) {
+        this.ids = ids;
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.repository.support;
+
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 조회할 때 같이 로딩할 연관관계 (Querydsl4RepositorySupport 에 넘긴다)
+ *
+ * - FetchPlan.of("team") : 경로를 직접 지정, 점(.)으로 이어서 중첩 ex) "team.members"
+ * - FetchPlan.named("Member.withTeam") : 엔티티에 선언한 @NamedEntityGraph
+ *
+ * 지정하지 않은 연관관계는 LAZY 그대로 둔다. (javax.persistence.fetchgraph)
+ */
+public final class FetchPlan {
+
+    private final String graphName;
+    private final List<String> attributePaths;
+
+    private FetchPlan(String graphName, List<String> attributePaths) {
+        this.graphName = graphName;
+        this.attributePaths = attributePaths;
+    }
+
+    public static FetchPlan of(String... attributePaths) {
+        for (String path : attributePaths) {
+            Assert.hasText(path, "attribute path must not be empty");
+        }
+        return new FetchPlan(null, Collections.unmodifiableList(Arrays.asList(attributePaths)));
+    }
+
+    public static FetchPlan named(String graphName) {
+        Assert.hasText(graphName, "graph name must not be empty");
+        return new FetchPlan(graphName, Collections.emptyList());
+    }
+
+    String getGraphName() {
+        return graphName;
+    }
+
+    List<String> getAttributePaths() {
+        return attributePaths;
+    }
+
+    @Override
+    public String toString() {
+        return graphName != null ? "FetchPlan(" + graphName + ")" : "FetchPlan" + attributePaths;
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import javax.persistence.EntityManager;
+
+/**
+ * select, selectFrom, from 으로 만드는 모든 쿼리에 QueryHintPolicy 를 거는 JPAQueryFactory
+ * (update, delete 절에는 걸지 않는다)
+ */
+public class HintingJPAQueryFactory extends JPAQueryFactory {
+
+    private final QueryHintPolicy policy;
+
+    public HintingJPAQueryFactory(EntityManager entityManager, QueryHintPolicy policy) {
+        super(entityManager);
+        this.policy = policy;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return policy.apply(super.query());
+    }
+
+    public QueryHintPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.QTeam;
+import study.querydsl.entity.sql.SMember;
+
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.Member.normalizeUsername;
+
+/**
+ * MemberSearchCondition 검색 조건 (JPA QMember / Querydsl SQL SMember 공용)
+ *
+ * 값이 비어 있으면 null 을 돌려주므로 where(...) 에 그대로 넘기면 조건이 빠진다.
+ * username 대소문자 무시는 lower() 대신 인덱스가 걸린 username_lower 컬럼으로 비교한다.
+ */
+public final class MemberPredicates {
+
+    private MemberPredicates() {
+    }
+
+    public static BooleanExpression usernameEq(QMember member, String username, boolean ignoreCase) {
+        return usernameEq(member.username, member.usernameLower, username, ignoreCase);
+    }
+
+    public static BooleanExpression usernameEq(SMember member, String username, boolean ignoreCase) {
+        return usernameEq(member.username, member.usernameLower, username, ignoreCase);
+    }
+
+    // like 'xxx%' 는 앞부분이 고정이라 인덱스를 탈 수 있다. ('%xxx%' 는 X)
+    public static BooleanExpression usernameStartsWith(QMember member, String prefix, boolean ignoreCase) {
+        return usernameStartsWith(member.username, member.usernameLower, prefix, ignoreCase);
+    }
+
+    public static BooleanExpression usernameStartsWith(SMember member, String prefix, boolean ignoreCase) {
+        return usernameStartsWith(member.username, member.usernameLower, prefix, ignoreCase);
+    }
+
+    public static BooleanExpression teamNameEq(QTeam team, String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    // team.name 비교 대신 member 테이블의 team_id(FK) 로 바로 비교 -> 조건 때문에 team 조인이나 문자열 비교를 할 필요가 없다.
+    public static BooleanExpression teamIdIn(QMember member, List<Long> teamIds) {
+        return idIn(member.team.id, teamIds);
+    }
+
+    public static BooleanExpression teamIdIn(SMember member, List<Long> teamIds) {
+        return idIn(member.teamId, teamIds);
+    }
+
+    public static BooleanExpression ageGoe(QMember member, Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    public static BooleanExpression ageGoe(SMember member, Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    public static BooleanExpression ageLoe(QMember member, Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    public static BooleanExpression ageLoe(SMember member, Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private static BooleanExpression usernameEq(StringPath username, StringPath usernameLower, String value, boolean ignoreCase) {
+        if (!hasText(value)) {
+            return null;
+        }
+        return ignoreCase ? usernameLower.eq(normalizeUsername(value)) : username.eq(value);
+    }
+
+    private static BooleanExpression usernameStartsWith(StringPath username, StringPath usernameLower, String prefix, boolean ignoreCase) {
+        if (!hasText(prefix)) {
+            return null;
+        }
+        return ignoreCase ? usernameLower.startsWith(normalizeUsername(prefix)) : username.startsWith(prefix);
+    }
+
+    // null 이면 팀 조건 없음, 빈 목록이면 없는 팀명 -> in () 로 아무것도 안 나온다.
+    private static BooleanExpression idIn(NumberPath<Long> teamId, List<Long> teamIds) {
+        if (teamIds == null) {
+            return null;
+        }
+        return teamIds.size() == 1 ? teamId.eq(teamIds.get(0)) : teamId.in(teamIds);
+    }
+}
@@ -0,0 +1,156 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.AbstractJPAQuery;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 쿼리에 거는 하이버네이트 / JPA 힌트 묶음 (HintingJPAQueryFactory 가 모든 쿼리에 기본으로 건다)
+ *
+ * - readOnly : 지정하면 세션 기본값과 상관없이 그 값, 지정 안 하면 트랜잭션을 따라간다. (트랜잭션이 없거나 readOnly 면 org.hibernate.readOnly, 스냅샷을 만들지 않음)
+ * - fetchSize : JDBC fetch size
+ * - timeout : 쿼리 타임아웃, JDBC 는 초 단위라서 초 단위로 올린다. (400ms -> 1초, 0 이하면 없음) 우선순위는 호출마다 지정(timeout) > 엔드포인트(@QueryTimeout) > 기본값(defaultTimeout)
+ * - callerComment : SQL 주석에 쿼리를 만든 메서드(ex. MemberRepositoryImpl.search)를 남긴다. (DB 쪽 slow query 에서 어디서 나간 쿼리인지 찾기용, hibernate.use_sql_comments 필요)
+ *
+ * 불변 객체라서 readOnly(..), timeout(..) 등은 바뀐 복사본을 돌려준다. ex) policy.timeout(Duration.ofSeconds(1)).apply(query)
+ */
+public final class QueryHintPolicy {
+
+    private static final ThreadLocal<Duration> ENDPOINT_TIMEOUT = new ThreadLocal<>();
+    // 쿼리를 대신 만들어주는 클래스들, 호출 메서드를 찾을 때 건너뛴다.
+    private static final Class<?>[] SUPPORT_CLASSES = {
+            QueryHintPolicy.class, HintingJPAQueryFactory.class, Querydsl4RepositorySupport.class};
+
+    private final Boolean readOnly;
+    private final Integer fetchSize;
+    private final Duration timeout;
+    private final Duration defaultTimeout;
+    private final boolean callerComment;
+
+    private QueryHintPolicy(Boolean readOnly, Integer fetchSize, Duration timeout, Duration defaultTimeout,
+                            boolean callerComment) {
+        this.readOnly = readOnly;
+        this.fetchSize = fetchSize;
+        this.timeout = timeout;
+        this.defaultTimeout = defaultTimeout;
+        this.callerComment = callerComment;
+    }
+
+    /**
+     * readOnly 는 트랜잭션을 따라가고, fetch size, 타임아웃은 지정하지 않음, 호출 메서드 주석 O
+     */
+    public static QueryHintPolicy defaults() {
+        return new QueryHintPolicy(null, null, null, null, true);
+    }
+
+    public QueryHintPolicy readOnly(boolean readOnly) {
+        return new QueryHintPolicy(readOnly, fetchSize, timeout, defaultTimeout, callerComment);
+    }
+
+    public QueryHintPolicy fetchSize(int fetchSize) {
+        return new QueryHintPolicy(readOnly, fetchSize > 0 ? fetchSize : null, timeout, defaultTimeout, callerComment);
+    }
+
+    public QueryHintPolicy timeout(Duration timeout) {
+        return new QueryHintPolicy(readOnly, fetchSize, timeout, defaultTimeout, callerComment);
+    }
+
+    // 엔드포인트 타임아웃이 없을 때만 쓰는 값 (설정 querydsl.query-hints.timeout-ms)
+    public QueryHintPolicy defaultTimeout(Duration defaultTimeout) {
+        return new QueryHintPolicy(readOnly, fetchSize, timeout, defaultTimeout, callerComment);
+    }
+
+    public QueryHintPolicy callerComment(boolean callerComment) {
+        return new QueryHintPolicy(readOnly, fetchSize, timeout, defaultTimeout, callerComment);
+    }
+
+    /**
+     * 힌트를 건다. 이미 걸린 힌트는 나중에 건 값이 이긴다. (기본 정책 위에 호출마다 덮어쓰기 가능)
+     */
+    public <Q extends AbstractJPAQuery<?, Q>> Q apply(Q query) {
+        if (readOnly != null) {
+            // readOnly 트랜잭션은 세션 기본값이 readOnly 라서 false 도 명시적으로 걸어야 한다.
+            query.setHint(QueryHints.READ_ONLY, readOnly);
+        } else if (isReadOnlyTransaction()) {
+            query.setHint(QueryHints.READ_ONLY, true);
+        }
+        if (fetchSize != null) {
+            query.setHint(QueryHints.FETCH_SIZE, fetchSize);
+        }
+        Duration effectiveTimeout = timeout != null ? timeout
+                : Optional.ofNullable(ENDPOINT_TIMEOUT.get()).orElse(defaultTimeout);
+        if (effectiveTimeout != null && !effectiveTimeout.isNegative() && !effectiveTimeout.isZero()) {
+            query.setHint(QueryHints.TIMEOUT_HIBERNATE, timeoutSeconds(effectiveTimeout));
+        }
+        if (callerComment) {
+            String caller = caller();
+            if (caller != null) {
+                query.setHint(QueryHints.COMMENT, caller);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * 지금 스레드(요청)에서 만드는 쿼리의 타임아웃 (QueryTimeoutInterceptor 가 요청마다 설정/해제)
+     */
+    public static void setEndpointTimeout(Duration timeout) {
+        ENDPOINT_TIMEOUT.set(timeout);
+    }
+
+    public static void clearEndpointTimeout() {
+        ENDPOINT_TIMEOUT.remove();
+    }
+
+    // 밀리초 그대로(javax.persistence.query.timeout) 넘기면 하이버네이트가 초로 버림 -> 1초 미만은 0(타임아웃 없음)이 된다.
+    static int timeoutSeconds(Duration timeout) {
+        long seconds = timeout.getSeconds() + (timeout.getNano() > 0 ? 1 : 0);
+        return (int) Math.min(seconds, Integer.MAX_VALUE);
+    }
+
+    // 트랜잭션 밖이면 엔티티가 어차피 준영속이므로 스냅샷이 필요 없다.
+    private static boolean isReadOnlyTransaction() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    // querydsl, SUPPORT_CLASSES, 스프링 프록시를 건너뛴 첫 호출 메서드 ex) MemberRepositoryImpl.search
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !isInfrastructure(frame.getClassName()))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse(null));
+    }
+
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("com.querydsl.")
+                || isSupportClass(className)
+                || className.startsWith("org.springframework.")
+                || className.startsWith("java.")
+                || className.startsWith("jdk.")
+                || className.contains("$$");
+    }
+
+    private static boolean isSupportClass(String className) {
+        for (Class<?> supportClass : SUPPORT_CLASSES) {
+            if (className.equals(supportClass.getName()) || className.startsWith(supportClass.getName() + "$")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryHintPolicy(readOnly=" + (readOnly != null ? readOnly : "transaction") + ", fetchSize=" + fetchSize
+                + ", timeout=" + timeout + ", defaultTimeout=" + defaultTimeout + ", callerComment=" + callerComment + ")";
+    }
+}
@@ -1,11 +1,24 @@
 package study.querydsl.repository.support;
 
 
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.hibernate.HibernateQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.graph.Graph;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,23 +29,60 @@ import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
  *
+ * 상속받은 리포지토리는 기본적으로 readOnly 트랜잭션 (쓰기 메서드는 @Transactional 을 따로 붙인다)
+ *
+ * FetchPlan 을 받는 fetch, applyPagination 은 지정한 연관관계만 같이 로딩한다. (루트 엔티티는 domainClass)
+ * - to-one 은 fetchgraph 힌트로 조인해서 한 쿼리로 가져온다.
+ * - 컬렉션은 조인하면 row 가 늘어나고 페이징이 메모리에서 일어나므로, 조회 후 초기화한다.
+ *   (@BatchSize, hibernate.default_batch_fetch_size 로 엔티티 여러 개의 컬렉션을 IN 쿼리 한번에 로딩)
+ *
+ * select, selectFrom 등으로 만드는 쿼리에는 QueryHintPolicy 가 기본으로 걸린다. (readOnly, fetch size, 타임아웃, 호출 메서드 주석)
+ *
+ * scan, scanStream, scanParallel 은 대량 배치용 (전체 회원 순회 등)
+ * - StatelessSession 이라 영속성 컨텍스트(1차 캐시, 스냅샷)가 없고, 읽은 엔티티는 chunk 를 넘긴 뒤 버려진다. -> 건수와 상관없이 메모리 일정
+ * - FORWARD_ONLY ScrollableResults + fetchSize 로 DB 에서 조금씩 받아온다.
+ * - 세션이 자기 커넥션을 따로 열므로 스프링 트랜잭션 밖에서(커밋된 데이터만) 읽는다. LAZY 연관관계는 로딩할 수 없다. (프록시의 id 는 가능)
+ *
  * @author Younghan Kim
  * @see org.springframework.data.jpa.repository.support.QuerydslRepositorySupport
  */
 @Repository
+@Transactional(readOnly = true)
 public abstract class Querydsl4RepositorySupport {
     private final Class domainClass;
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private QueryHintPolicy queryHintPolicy = QueryHintPolicy.defaults();
+    private EntityPath entityPath;
+    private NumberPath<Long> idPath;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -49,7 +99,22 @@ public abstract class Querydsl4RepositorySupport {
         this.entityManager = entityManager;
         this.querydsl = new Querydsl(entityManager, new
                 PathBuilder<>(path.getType(), path.getMetadata()));
-        this.queryFactory = new JPAQueryFactory(entityManager);
+        this.queryFactory = new HintingJPAQueryFactory(entityManager, queryHintPolicy);
+        this.entityPath = path;
+        this.idPath = new PathBuilder<>(path.getType(), path.getMetadata())
+                .getNumber(entityInformation.getIdAttribute().getName(), Long.class);
+    }
+
+    /**
+     * 기본 힌트 정책 (QueryHintConfig), 빈이 없으면 QueryHintPolicy.defaults()
+     */
+    @Autowired(required = false)
+    public void setQueryHintPolicy(QueryHintPolicy queryHintPolicy) {
+        Assert.notNull(queryHintPolicy, "QueryHintPolicy must not be null!");
+        this.queryHintPolicy = queryHintPolicy;
+        if (entityManager != null) {
+            this.queryFactory = new HintingJPAQueryFactory(entityManager, queryHintPolicy);
+        }
     }
 
     @PostConstruct
@@ -71,6 +136,10 @@ public abstract class Querydsl4RepositorySupport {
         return entityManager;
     }
 
+    protected QueryHintPolicy getQueryHintPolicy() {
+        return queryHintPolicy;
+    }
+
     protected <T> JPAQuery<T> select(Expression<T> expr) {
         return getQueryFactory().select(expr);
     }
@@ -79,6 +148,17 @@ public abstract class Querydsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    /**
+     * 기본 힌트 위에 hintPolicy 를 덮어쓴다. ex) select(member, getQueryHintPolicy().timeout(Duration.ofSeconds(1)))
+     */
+    protected <T> JPAQuery<T> select(Expression<T> expr, QueryHintPolicy hintPolicy) {
+        return hintPolicy.apply(getQueryFactory().select(expr));
+    }
+
+    protected <T> JPAQuery<T> selectFrom(EntityPath<T> from, QueryHintPolicy hintPolicy) {
+        return hintPolicy.apply(getQueryFactory().selectFrom(from));
+    }
+
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
@@ -97,4 +177,250 @@ public abstract class Querydsl4RepositorySupport {
         return PageableExecutionUtils.getPage(content, pageable,
                 countResult::fetchCount);
     }
-}
\ No newline at end of file
+
+    /**
+     * fetchPlan 의 연관관계를 같이 로딩해서 조회
+     */
+    protected <T> List<T> fetch(JPAQuery<T> query, FetchPlan fetchPlan) {
+        List<String[]> collectionPaths = new ArrayList<>();
+        List<T> content = applyFetchPlan(query, fetchPlan, collectionPaths).fetch();
+        initializeCollections(content, collectionPaths);
+        return content;
+    }
+
+    /**
+     * fetchPlan 은 content 쿼리에만 적용하고, count 는 힌트 없는 새 쿼리로 구한다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable, FetchPlan fetchPlan,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        List<String[]> collectionPaths = new ArrayList<>();
+        JPAQuery jpaQuery = applyFetchPlan(contentQuery.apply(getQueryFactory()), fetchPlan, collectionPaths);
+        List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+        initializeCollections(content, collectionPaths);
+        JPAQuery countQuery = contentQuery.apply(getQueryFactory());
+        return PageableExecutionUtils.getPage(content, pageable,
+                countQuery::fetchCount);
+    }
+
+    /**
+     * to-one 경로는 fetchgraph 힌트로 걸고, 컬렉션이 들어간 경로는 collectionPaths 에 담아서 돌려준다. (조회 후 initializeCollections)
+     */
+    protected <T> JPAQuery<T> applyFetchPlan(JPAQuery<T> query, FetchPlan fetchPlan, List<String[]> collectionPaths) {
+        if (fetchPlan == null) {
+            return query;
+        }
+        Metamodel metamodel = entityManager.getMetamodel();
+        RootGraph<?> graph = (RootGraph<?>) entityManager.createEntityGraph(domainClass);
+        boolean hasToOne = false;
+        for (String path : attributePaths(fetchPlan)) {
+            String[] segments = path.split("\\.");
+            Graph<?> node = graph;
+            ManagedType<?> type = metamodel.managedType(domainClass);
+            for (int i = 0; i < segments.length; i++) {
+                Attribute<?, ?> attribute = type.getAttribute(segments[i]);
+                if (attribute.isCollection()) {
+                    collectionPaths.add(segments);
+                    break;
+                }
+                hasToOne = true;
+                if (i == segments.length - 1) {
+                    node.addAttributeNode(segments[i]);
+                } else {
+                    node = node.addSubGraph(segments[i]);
+                    type = metamodel.managedType(attribute.getJavaType());
+                }
+            }
+        }
+        return hasToOne ? query.setHint(QueryHints.HINT_FETCHGRAPH, graph) : query;
+    }
+
+    /**
+     * 조회한 엔티티들의 컬렉션 경로를 따라가며 초기화
+     * 첫 초기화 때 batch size 만큼 다른 엔티티의 같은 컬렉션도 IN 쿼리로 같이 로딩되므로 엔티티마다 쿼리가 나가지 않는다.
+     */
+    protected void initializeCollections(List<?> content, List<String[]> collectionPaths) {
+        for (String[] segments : collectionPaths) {
+            for (Object entity : content) {
+                if (domainClass.isInstance(entity)) {
+                    initialize(entity, segments, 0);
+                }
+            }
+        }
+    }
+
+    private void initialize(Object entity, String[] segments, int index) {
+        if (entity == null || index == segments.length) {
+            return;
+        }
+        Object value = PropertyAccessorFactory.forDirectFieldAccess(Hibernate.unproxy(entity))
+                .getPropertyValue(segments[index]);
+        Hibernate.initialize(value);
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                initialize(element, segments, index + 1);
+            }
+        } else {
+            initialize(value, segments, index + 1);
+        }
+    }
+
+    // @NamedEntityGraph 는 attribute node 를 "team.members" 같은 경로로 펼친다.
+    private List<String> attributePaths(FetchPlan fetchPlan) {
+        if (fetchPlan.getGraphName() == null) {
+            return fetchPlan.getAttributePaths();
+        }
+        List<String> paths = new ArrayList<>();
+        EntityGraph<?> graph = entityManager.getEntityGraph(fetchPlan.getGraphName());
+        collectPaths(graph.getAttributeNodes(), "", paths);
+        return paths;
+    }
+
+    private static void collectPaths(List<AttributeNode<?>> nodes, String prefix, List<String> paths) {
+        for (AttributeNode<?> node : nodes) {
+            String path = prefix + node.getAttributeName();
+            if (node.getSubgraphs().isEmpty()) {
+                paths.add(path);
+                continue;
+            }
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                if (subgraph.getAttributeNodes().isEmpty()) {
+                    paths.add(path);
+                } else {
+                    collectPaths(subgraph.getAttributeNodes(), path + ".", paths);
+                }
+            }
+        }
+    }
+
+    /**
+     * predicate 에 맞는 엔티티를 id 순으로 chunkSize 개씩 넘긴다. 넘긴 건수를 돌려준다.
+     */
+    protected <T> long scan(Predicate predicate, int fetchSize, int chunkSize, Consumer<List<T>> chunkConsumer) {
+        try (Stream<T> stream = scanStream(predicate, fetchSize)) {
+            return accept(stream, chunkSize, chunkConsumer);
+        }
+    }
+
+    /**
+     * predicate 에 맞는 엔티티를 id 순으로 하나씩, 다 쓰면 꼭 close 해야 한다. (try-with-resources, 세션과 커서를 닫음)
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> Stream<T> scanStream(Predicate predicate, int fetchSize) {
+        StatelessSession session = openStatelessSession();
+        try {
+            ScrollableResults results = new HibernateQuery<>(session)
+                    .select(entityPath)
+                    .from(entityPath)
+                    .where(predicate)
+                    .orderBy(idPath.asc())
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+
+            Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    if (!results.next()) {
+                        return false;
+                    }
+                    action.accept((T) results.get(0));
+                    return true;
+                }
+            };
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(() -> {
+                        try {
+                            results.close();
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * scan 을 id 범위로 나눠서 parallelism 개의 스레드가 각자 세션으로 읽는다. (범위 수 = parallelism * 4)
+     * chunkConsumer 는 여러 스레드에서 동시에 불리고, 범위 사이의 순서는 보장하지 않는다.
+     */
+    protected <T> long scanParallel(Predicate predicate, int fetchSize, int chunkSize, int parallelism,
+                                    Consumer<List<T>> chunkConsumer) {
+        Long[] minMax = idRange(predicate);
+        if (minMax == null) {
+            return 0;
+        }
+        long min = minMax[0];
+        long max = minMax[1];
+        int ranges = parallelism * 4;
+        long step = Math.max(1, (max - min) / ranges + 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (long from = min; from <= max; from += step) {
+                long to = Math.min(max, from + step - 1);
+                Predicate range = idPath.between(from, to).and(predicate);
+                futures.add(executor.submit(() -> scan(range, fetchSize, chunkSize, chunkConsumer)));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("scan interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> long accept(Stream<T> stream, int chunkSize, Consumer<List<T>> chunkConsumer) {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        long count = 0;
+        for (Iterator<T> iterator = stream.iterator(); iterator.hasNext(); ) {
+            chunk.add(iterator.next());
+            count++;
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+        return count;
+    }
+
+    // predicate 에 맞는 최소, 최대 id (없으면 null)
+    private Long[] idRange(Predicate predicate) {
+        StatelessSession session = openStatelessSession();
+        try {
+            Tuple tuple = new HibernateQuery<>(session)
+                    .select(idPath.min(), idPath.max())
+                    .from(entityPath)
+                    .where(predicate)
+                    .fetchOne();
+            if (tuple == null || tuple.get(idPath.min()) == null) {
+                return null;
+            }
+            return new Long[]{tuple.get(idPath.min()), tuple.get(idPath.max())};
+        } finally {
+            session.close();
+        }
+    }
+
+    private StatelessSession openStatelessSession() {
+        return entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .openStatelessSession();
+    }
+}
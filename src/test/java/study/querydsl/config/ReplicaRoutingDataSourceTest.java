@@ -0,0 +1,101 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로컬 H2 두 개(primary, replica)로 라우팅 확인
+ */
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "sa", "");
+    DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "sa", "");
+
+    ReplicaLagMonitor lagMonitor;
+    RoutingDataSourceMetrics metrics;
+    DataSource dataSource;
+    DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    public void before() {
+        lagMonitor = new ReplicaLagMonitor(replica, "select 0", 5);
+        metrics = new RoutingDataSourceMetrics(primary, replica);
+        dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, lagMonitor, metrics));
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterEach
+    public void after() {
+        lagMonitor.close();
+    }
+
+    @Test
+    public void readOnlyGoesToReplica() {
+        // LazyConnectionDataSourceProxy 가 기본 커넥션 속성을 읽을 때 primary 를 한번 쓸 수 있으므로 증가분으로 비교
+        assertThat(urlIn(true)).contains("replica");
+        long primaryBefore = metrics.getRoutedCount(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(urlIn(false)).contains("primary");
+        assertThat(metrics.getRoutedCount(ReplicaRoutingDataSource.Route.REPLICA)).isEqualTo(1);
+        assertThat(metrics.getRoutedCount(ReplicaRoutingDataSource.Route.PRIMARY)).isEqualTo(primaryBefore + 1);
+    }
+
+    @Test
+    public void replicaLagFallsBackToPrimary() {
+        ReplicaLagMonitor laggingMonitor = new ReplicaLagMonitor(replica, "select 10", 5);
+        laggingMonitor.check();
+        dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, laggingMonitor, metrics));
+        transactionManager = new DataSourceTransactionManager(dataSource);
+
+        assertThat(laggingMonitor.isReplicaUsable()).isFalse();
+        assertThat(urlIn(true)).contains("primary");
+        assertThat(metrics.getFallbackCount()).isEqualTo(1);
+        laggingMonitor.close();
+    }
+
+    // readOnly 트랜잭션에서도 커넥션을 얻기 전에 고정하면 primary, 이미 얻은 커넥션은 그대로
+    @Test
+    public void pinnedToPrimaryBeforeFirstQuery() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+
+        tx.executeWithoutResult(status -> {
+            assertThat(ReplicaRoutingDataSource.currentRoute()).isNull();
+            assertThat(ReplicaRoutingDataSource.onPrimary(this::currentUrl)).contains("primary");
+            assertThat(ReplicaRoutingDataSource.currentRoute()).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        });
+
+        tx.executeWithoutResult(status -> {
+            assertThat(currentUrl()).contains("replica");
+            assertThat(ReplicaRoutingDataSource.onPrimary(this::currentUrl)).contains("replica");
+            assertThat(ReplicaRoutingDataSource.currentRoute()).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+        });
+        assertThat(ReplicaRoutingDataSource.currentRoute()).isNull();
+    }
+
+    private String urlIn(boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> currentUrl());
+    }
+
+    private String currentUrl() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.getMetaData().getURL();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
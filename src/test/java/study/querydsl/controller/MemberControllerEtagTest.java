@@ -0,0 +1,130 @@
+package study.querydsl.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 데이터 버전은 커밋된 변경만 반영하므로 @Transactional 없이 TransactionTemplate 으로 커밋해가며 테스트한다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class MemberControllerEtagTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        memberId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            return member1.getId();
+        });
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // 커밋한 데이터를 지워서 다른 @Transactional 테스트에 영향이 없도록
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+    }
+
+    @Test
+    public void notModifiedWithoutQuery() throws Exception {
+        String etag = etag("/v2/members?page=0&size=10");
+
+        statistics.clear();
+        mockMvc.perform(get("/v2/members?page=0&size=10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        // 조건이 다르면 다른 ETag
+        assertThat(etag("/v2/members?page=0&size=10&ageGoe=15")).isNotEqualTo(etag);
+        assertThat(etag("/v3/members?page=0&size=10")).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void entityChangeBumpsVersion() throws Exception {
+        String etag = etag("/v3/members?username=member1");
+
+        tx.executeWithoutResult(status -> em.find(Member.class, memberId).setAge(30));
+
+        mockMvc.perform(get("/v3/members?username=member1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertThat(etag("/v3/members?username=member1")).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void rolledBackChangeKeepsVersion() throws Exception {
+        String etag = etag("/v2/members");
+
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, memberId).setAge(30);
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        mockMvc.perform(get("/v2/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void bulkUpdateBumpsVersion() throws Exception {
+        String etag = etag("/v2/members");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member2");
+        memberRepository.reassignTeam(condition, null);
+
+        mockMvc.perform(get("/v2/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private String etag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        return etag;
+    }
+}
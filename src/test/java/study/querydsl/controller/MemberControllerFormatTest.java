@@ -0,0 +1,122 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberPageResponse;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerFormatTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    Long teamAId;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.persist(new Member("member4", 14, null));
+        em.flush();
+        teamAId = teamA.getId();
+    }
+
+    @Test
+    public void defaultIsPageJson() throws Exception {
+        mockMvc.perform(get("/v2/members?size=10"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[*].teamName", hasItem("teamA")))
+                .andExpect(jsonPath("$.totalElements").value(5));
+    }
+
+    @Test
+    public void normalizedJson() throws Exception {
+        mockMvc.perform(get("/v3/members?size=10").accept(MemberPageResponse.JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MemberPageResponse.JSON))
+                .andExpect(jsonPath("$.teams.length()").value(2))
+                .andExpect(jsonPath("$.teams['" + teamAId + "']").value("teamA"))
+                .andExpect(jsonPath("$.members.length()").value(5))
+                .andExpect(jsonPath("$.members[*].teamName").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(5));
+    }
+
+    // 정규화 타입이 Accept 에 있어도 q 값이 낮으면 Page JSON
+    @Test
+    public void respectsQualityValues() throws Exception {
+        mockMvc.perform(get("/v2/members?size=10")
+                        .header(HttpHeaders.ACCEPT, "application/json, " + MemberPageResponse.JSON_VALUE + ";q=0.1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[*].teamName", hasItem("teamA")))
+                .andExpect(jsonPath("$.members").doesNotExist());
+
+        mockMvc.perform(get("/v2/members?size=10")
+                        .header(HttpHeaders.ACCEPT, "application/json;q=0.5, " + MemberPageResponse.JSON_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MemberPageResponse.JSON))
+                .andExpect(jsonPath("$.members.length()").value(5));
+    }
+
+    @Test
+    public void cbor() throws Exception {
+        CBORMapper mapper = new CBORMapper();
+
+        MvcResult page = mockMvc.perform(get("/v2/members?size=10").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        assertThat(mapper.readTree(page.getResponse().getContentAsByteArray()).get("totalElements").asLong()).isEqualTo(5);
+
+        MvcResult normalized = mockMvc.perform(get("/v2/members?size=10").accept(MemberPageResponse.CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MemberPageResponse.CBOR))
+                .andReturn();
+        JsonNode tree = mapper.readTree(normalized.getResponse().getContentAsByteArray());
+        assertThat(tree.get("teams").get(String.valueOf(teamAId)).asText()).isEqualTo("teamA");
+        assertThat(tree.get("members")).hasSize(5);
+    }
+
+    // 형식마다 본문이 다르므로 ETag 도 달라야 한다.
+    @Test
+    public void etagVariesByAccept() throws Exception {
+        MvcResult json = mockMvc.perform(get("/v2/members")).andReturn();
+        MvcResult cbor = mockMvc.perform(get("/v2/members").accept(MediaType.APPLICATION_CBOR)).andReturn();
+
+        assertThat(json.getResponse().getHeader(HttpHeaders.ETAG))
+                .isNotEqualTo(cbor.getResponse().getHeader(HttpHeaders.ETAG));
+        assertThat(cbor.getResponse().getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT);
+    }
+}
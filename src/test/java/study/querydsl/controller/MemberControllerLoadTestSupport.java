@@ -0,0 +1,109 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /v1 ~ /v3/members 부하 테스트 (처리량, p99)
+ * 모드별 하위 클래스(PlatformThreadLoadTest, VirtualThreadLoadTest)의 출력을 비교한다. ./gradlew loadTest
+ */
+@Tag("load")
+abstract class MemberControllerLoadTestSupport {
+
+    private static final int CONCURRENCY = 200;
+    private static final int REQUESTS = 4000;
+    private static final String[] PATHS = {
+            "/v1/members?teamName=teamA&ageGoe=30",
+            "/v2/members?teamName=teamB&page=1&size=10",
+            "/v3/members?ageGoe=10&ageLoe=80&page=2&size=10"
+    };
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void before() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Long count = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+            if (count > 0) {
+                return;
+            }
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 1000; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @Test
+    public void load() throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(CONCURRENCY)).build();
+        run(client, REQUESTS / 10); // 워밍업
+
+        long start = System.nanoTime();
+        List<Long> latencies = run(client, REQUESTS);
+        long elapsed = System.nanoTime() - start;
+
+        Collections.sort(latencies);
+        long p50 = latencies.get(latencies.size() / 2);
+        long p99 = latencies.get((int) (latencies.size() * 0.99));
+        System.out.printf("[%s] requests=%d concurrency=%d throughput=%.1f req/s p50=%.1fms p99=%.1fms%n",
+                mode(), REQUESTS, CONCURRENCY, REQUESTS / (elapsed / 1e9), p50 / 1e6, p99 / 1e6);
+    }
+
+    abstract String mode();
+
+    private List<Long> run(HttpClient client, int requests) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                URI uri = URI.create("http://localhost:" + port + PATHS[i % PATHS.length]);
+                futures.add(callers.submit(() -> {
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    assertThat(response.statusCode()).isEqualTo(200);
+                    return System.nanoTime() - start;
+                }));
+            }
+            List<Long> latencies = new ArrayList<>(requests);
+            for (Future<Long> future : futures) {
+                latencies.add(future.get());
+            }
+            return latencies;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
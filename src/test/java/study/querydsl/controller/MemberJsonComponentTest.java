@@ -0,0 +1,108 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberFacetResult;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 스프링 ObjectMapper(@JsonComponent 등록)와 기본 직렬화 결과가 같은지, row 당 할당이 없는지 확인한다.
+ * 처리 시간 비교는 src/jmh 의 MemberJsonBenchmark
+ */
+@SpringBootTest
+class MemberJsonComponentTest {
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    public void registered() throws Exception {
+        assertThat(objectMapper.getSerializerProviderInstance().findValueSerializer(PageImpl.class))
+                .isInstanceOf(MemberJsonComponent.PageSerializer.class);
+        assertThat(objectMapper.getSerializerProviderInstance().findValueSerializer(MemberTeamDto.class))
+                .isInstanceOf(MemberJsonComponent.MemberTeamDtoSerializer.class);
+    }
+
+    @Test
+    public void sameJsonAsDefault() throws Exception {
+        List<MemberTeamDto> content = List.of(
+                new MemberTeamDto(1L, "member1", 10, 1L, "teamA"),
+                new MemberTeamDto(2L, "member\"2\"\n", 20, null, null), // 이스케이프, 팀 없음
+                new MemberTeamDto(3L, "회원3", 130, 2L, "팀B"));
+
+        assertSameJson(new PageImpl<>(content, PageRequest.of(1, 3, Sort.by("age").descending()), 100));
+        assertSameJson(new PageImpl<>(content)); // unpaged
+        assertSameJson(Page.empty());
+        assertSameJson(new MemberFacetResult(new PageImpl<>(content), Map.of("teamA", 1L), Map.of("~19", 1L)));
+        assertSameJson(List.of(new MemberDto("member1", 10), new MemberDto(null, 20)));
+    }
+
+    /**
+     * 응답 크기가 달라도 할당량은 거의 같아야 한다. (row 마다 중간 객체, 박싱 X)
+     */
+    @Test
+    public void noAllocationPerRow() throws Exception {
+        Page<MemberTeamDto> small = page(10);
+        Page<MemberTeamDto> large = page(1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+
+        long smallBytes = allocatedPerResponse(objectMapper, small, out);
+        long largeBytes = allocatedPerResponse(objectMapper, large, out);
+        long perRow = (largeBytes - smallBytes) / (1000 - 10);
+
+        assertThat(perRow).isLessThan(8);
+        assertThat(smallBytes).isLessThan(8 * 1024);
+    }
+
+    private void assertSameJson(Object value) throws Exception {
+        assertThat(objectMapper.readTree(objectMapper.writeValueAsString(value)))
+                .isEqualTo(defaultMapper.readTree(defaultMapper.writeValueAsString(value)));
+    }
+
+    private static Page<MemberTeamDto> page(int rows) {
+        List<MemberTeamDto> content = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long teamId = i % 10 + 1;
+            content.add(new MemberTeamDto((long) i + 1, "member" + i, i % 60, teamId, "team" + teamId));
+        }
+        return new PageImpl<>(content, PageRequest.of(1, rows), rows * 10L);
+    }
+
+    private static long allocatedPerResponse(ObjectMapper mapper, Object value, ByteArrayOutputStream out) throws Exception {
+        for (int i = 0; i < 2_000; i++) { // 워밍업
+            out.reset();
+            mapper.writeValue(out, value);
+        }
+        int iterations = 500;
+        long before = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            out.reset();
+            mapper.writeValue(out, value);
+        }
+        return (allocatedBytes() - before) / iterations;
+    }
+
+    // 현재 스레드가 지금까지 힙에 할당한 바이트 (HotSpot)
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 기본 Tomcat 스레드 풀 (threads.max=50)
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "server.tomcat.threads.max=50")
+class PlatformThreadLoadTest extends MemberControllerLoadTestSupport {
+
+    @Override
+    String mode() {
+        return "platform";
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 요청마다 가상 스레드 (Java 21 이상에서만 실행)
+ */
+@EnabledIf("virtualThreadsAvailable")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"server.tomcat.threads.max=50", "querydsl.virtual-threads.enabled=true"})
+class VirtualThreadLoadTest extends MemberControllerLoadTestSupport {
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Override
+    String mode() {
+        return "virtual";
+    }
+}
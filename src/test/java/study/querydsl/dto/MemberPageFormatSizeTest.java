@@ -0,0 +1,59 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 응답 형식별 크기 비교 (Page JSON / Page CBOR / 정규화 JSON / 정규화 CBOR)
+ * 매퍼는 스프링이 컨버터에 쓰는 것과 같은 Jackson2ObjectMapperBuilder 로 만든다.
+ */
+class MemberPageFormatSizeTest {
+
+    private static final int ROWS = 100;
+    private static final int TEAMS = 5;
+
+    ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+
+    @Test
+    public void payloadSize() throws Exception {
+        List<MemberTeamDto> content = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            long teamId = i % TEAMS + 1;
+            content.add(new MemberTeamDto((long) i + 1, "member" + i, i % 60, teamId, "team" + teamId));
+        }
+        Page<MemberTeamDto> page = new PageImpl<>(content, PageRequest.of(3, ROWS), 10_000);
+
+        int pageJson = size(json, page);
+        int pageCbor = size(cbor, page);
+        int normalizedJson = size(json, MemberPageResponse.of(page));
+        int normalizedCbor = size(cbor, MemberPageResponse.of(page));
+
+        assertThat(normalizedJson).isLessThan(pageJson);
+        assertThat(pageCbor).isLessThan(pageJson);
+        assertThat(normalizedCbor).isLessThan(normalizedJson).isLessThan(pageCbor);
+
+        // 정규화 응답도 원래 내용을 그대로 복원할 수 있어야 한다.
+        JsonNode decoded = cbor.readTree(cbor.writeValueAsBytes(MemberPageResponse.of(page)));
+        assertThat(decoded.get("teams")).hasSize(TEAMS);
+        assertThat(decoded.get("members")).hasSize(ROWS);
+        JsonNode row = decoded.get("members").get(7);
+        assertThat(decoded.get("teams").get(row.get("teamId").asText()).asText()).isEqualTo(content.get(7).getTeamName());
+        assertThat(row.get("username").asText()).isEqualTo(content.get(7).getUsername());
+        assertThat(decoded.get("totalElements").asLong()).isEqualTo(10_000);
+    }
+
+    private static int size(ObjectMapper mapper, Object value) throws Exception {
+        return mapper.writeValueAsBytes(value).length;
+    }
+}
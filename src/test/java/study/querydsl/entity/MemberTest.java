@@ -1,5 +1,8 @@
 package study.querydsl.entity;
 
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -8,7 +11,9 @@ import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 import java.util.List;
 
-@SpringBootTest
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true") // 컬렉션 로딩 횟수 확인용
 @Transactional
 class MemberTest {
 
@@ -44,4 +49,62 @@ class MemberTest {
             System.out.println("-> Member.team" + member.getTeam());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 영속 상태 팀의 members 가 아직 로딩 안 됐으면 changeTeam 이 컬렉션을 로딩하지 않는다. (FK 만 변경)
+     */
+    @Test
+    public void changeTeamWithoutLoadingMembers() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Member member = em.find(Member.class, member1.getId());
+        Team target = em.find(Team.class, teamB.getId());
+        member.changeTeam(target);
+        em.flush();
+
+        assertThat(Hibernate.isInitialized(member.getTeam().getMembers())).isFalse();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(2); // member, teamB 만 (이전 팀 teamA 는 프록시 그대로)
+
+        em.clear();
+        assertThat(em.find(Team.class, teamB.getId()).getMembers()).extracting("username").containsExactly("member1");
+        assertThat(em.find(Team.class, teamA.getId()).getMembers()).extracting("username").containsExactly("member2");
+    }
+
+    /**
+     * members 가 이미 로딩돼 있으면 양쪽 컬렉션을 같이 맞춰준다.
+     */
+    @Test
+    public void changeTeamKeepsLoadedMembersInSync() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.flush();
+        em.clear();
+
+        Team oldTeam = em.find(Team.class, teamA.getId());
+        Team newTeam = em.find(Team.class, teamB.getId());
+        Hibernate.initialize(oldTeam.getMembers());
+        Hibernate.initialize(newTeam.getMembers());
+
+        Member member = oldTeam.getMembers().get(0);
+        member.changeTeam(newTeam);
+
+        assertThat(oldTeam.getMembers()).isEmpty();
+        assertThat(newTeam.getMembers()).containsExactly(member);
+    }
+}
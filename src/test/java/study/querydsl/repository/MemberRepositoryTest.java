@@ -1,11 +1,14 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.Tuple;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberFacetResult;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -13,9 +16,12 @@ import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 @SpringBootTest
 @Transactional
 class MemberRepositoryTest {
@@ -71,6 +77,148 @@ class MemberRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    @Test
+    public void searchByTeamNameCache() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member1");
+
+        // 캐시를 읽은 뒤에 추가된 팀도 persist 시점에 캐시가 비워져서 찾을 수 있다.
+        Team teamB = new Team("teamB");
+        em.persist(teamB);
+        em.persist(new Member("member2", 20, teamB));
+        condition.setTeamName("teamB");
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getContent())
+                .extracting("username").containsExactly("member2");
+
+        // 없는 팀명은 빈 결과
+        condition.setTeamName("teamC");
+        assertThat(memberRepository.search(condition)).isEmpty();
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+
+    @Test
+    public void searchUsernameStartsWithIgnoreCase() throws Exception {
+        em.persist(new Member("Member1", 10));
+        em.persist(new Member("member2", 20));
+        em.persist(new Member("MEMBER3", 30));
+        em.persist(new Member("user4", 40));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameStartsWith("mem");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member2");
+
+        condition.setUsernameIgnoreCase(true);
+        assertThat(memberRepository.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("Member1", "member2", "MEMBER3");
+
+        MemberSearchCondition eqCondition = new MemberSearchCondition();
+        eqCondition.setUsername("member3");
+        eqCondition.setUsernameIgnoreCase(true);
+        assertThat(memberRepository.search(eqCondition)).extracting("username").containsExactly("MEMBER3");
+    }
+
+    @Test
+    public void searchBatch() throws Exception {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("Member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("user5", 50));
+
+        List<MemberSearchCondition> conditions = List.of(
+                condition("member1", null, false, null, null, null),
+                condition("member2", null, true, null, null, null),
+                condition("member3", null, false, null, null, null),
+                condition(null, null, false, "teamA", null, null),
+                condition(null, null, false, "teamB", null, null),
+                condition(null, null, false, "teamC", null, null),
+                condition(null, "mem", true, null, 15, 35),
+                condition(null, null, false, "teamB", 35, null),
+                condition(null, null, false, null, null, null),
+                condition("member1", null, false, null, null, null) // 같은 조건 중복
+        );
+
+        List<List<MemberTeamDto>> results = memberRepository.searchBatch(conditions);
+
+        assertThat(results).hasSize(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            assertThat(results.get(i)).as(conditions.get(i).toString())
+                    .containsExactlyInAnyOrderElementsOf(memberRepository.search(conditions.get(i)));
+        }
+        assertThat(results.get(1)).extracting("username").containsExactly("Member2");
+        assertThat(results.get(5)).isEmpty();
+    }
+
+    @Test
+    public void searchPageFields() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        // team 조인 없이 member 컬럼만
+        List<MemberField> fields = MemberField.parse("username,memberId, teamId");
+        assertThat(fields).containsExactly(MemberField.MEMBER_ID, MemberField.USERNAME, MemberField.TEAM_ID);
+        Page<Tuple> page = memberRepository.searchPageFields(condition, PageRequest.of(0, 1), fields);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent().get(0).get(1, String.class)).isEqualTo("member1");
+        assertThat(page.getContent().get(0).get(2, Long.class)).isEqualTo(teamA.getId());
+
+        // teamName 을 고르면 team 조인
+        Page<Tuple> withTeamName = memberRepository.searchPageFields(new MemberSearchCondition(), PageRequest.of(0, 10),
+                MemberField.parse("teamName"));
+        assertThat(withTeamName.getContent()).extracting(row -> row.get(0, String.class))
+                .containsExactlyInAnyOrder("teamA", "teamA", null);
+    }
+
+    @Test
+    public void searchWithFacets() throws Exception {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 25, teamA));
+        em.persist(new Member("member3", 25, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 55));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        MemberFacetResult result = memberRepository.searchWithFacets(condition, PageRequest.of(0, 2), List.of(40, 20));
+
+        assertThat(result.getPage().getTotalElements()).isEqualTo(4);
+        assertThat(result.getPage().getContent()).hasSize(2);
+        assertThat(result.getTeamCounts()).containsExactly(entry("teamA", 1L), entry("teamB", 2L));
+        assertThat(result.getAgeCounts()).containsExactly(entry("~19", 0L), entry("20~39", 2L), entry("40~", 2L));
+    }
+
+    private static MemberSearchCondition condition(String username, String usernameStartsWith, boolean ignoreCase,
+                                                   String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameStartsWith(usernameStartsWith);
+        condition.setUsernameIgnoreCase(ignoreCase);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+
     @Test
     public void searchPageSimple() throws Exception {
         Team teamA = new Team("teamA");
@@ -97,6 +245,96 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    public void reassignTeam() throws Exception {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        assertThat(memberRepository.reassignTeam(condition, teamB.getId())).isEqualTo(2);
+
+        // 벌크 update 후 영속성 컨텍스트를 비웠으므로 다시 읽으면 DB 값
+        assertThat(em.contains(teamB)).isFalse();
+        Team findTeamB = em.find(Team.class, teamB.getId());
+        assertThat(findTeamB.getAllMembersView()).extracting("username").containsExactlyInAnyOrder("member2", "member3");
+
+        MemberSearchCondition member1 = new MemberSearchCondition();
+        member1.setUsername("member1");
+        assertThat(memberRepository.reassignTeam(member1, null)).isEqualTo(1); // 팀에서 빼기
+        assertThat(memberRepository.search(member1)).extracting("teamId").containsNull();
+
+        MemberSearchCondition none = new MemberSearchCondition();
+        none.setTeamName("none");
+        assertThat(memberRepository.reassignTeam(none, teamB.getId())).isZero();
+    }
+
+    @Test
+    public void membersOf() throws Exception {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 25; i++) {
+            em.persist(new Member("member" + i, i, i % 5 == 0 ? teamB : teamA)); // teamA 20명, teamB 5명
+        }
+        em.flush();
+        em.clear();
+
+        Page<Member> page = memberRepository.membersOf(teamA.getId(), PageRequest.of(1, 8));
+        assertThat(page.getTotalElements()).isEqualTo(20);
+        assertThat(page.getContent()).extracting("username")
+                .containsExactly("member11", "member12", "member13", "member14", "member16", "member17", "member18", "member19");
+
+        // keyset: 마지막 memberId 다음부터
+        List<Member> first = memberRepository.membersOf(teamB.getId(), null, 3);
+        assertThat(first).extracting("username").containsExactly("member0", "member5", "member10");
+        List<Member> next = memberRepository.membersOf(teamB.getId(), first.get(2).getId(), 3);
+        assertThat(next).extracting("username").containsExactly("member15", "member20");
+    }
+
+    @Test
+    public void membersViewIsReadOnly() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+
+        List<Member> view = teamA.getAllMembersView();
+        assertThat(view).hasSize(5);
+        assertThatThrownBy(() -> view.add(new Member("member5"))).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /**
+     * @BatchSize: 팀 여러 개의 members 를 처음 건드릴 때 팀마다가 아니라 IN 쿼리 한번으로 로딩
+     */
+    @Test
+    public void membersBatchFetch() throws Exception {
+        for (int t = 0; t < 5; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("member" + t + "_" + i, i, team));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        List<Team> teams = em.createQuery("select t from Team t order by t.id", Team.class).getResultList();
+        assertThat(teams).noneMatch(team -> util.isLoaded(team, "members"));
+
+        assertThat(teams.get(0).getAllMembersView()).hasSize(3); // 첫 번째 팀 컬렉션을 초기화하면 나머지 팀 컬렉션도 같이 로딩된다.
+        assertThat(teams).allMatch(team -> util.isLoaded(team, "members"));
+    }
+
     @Test
     public void querydslPredicateExecutorTest() throws Exception {
         Team teamA = new Team("teamA");
@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * scan 은 StatelessSession 이 커넥션을 따로 열어서 읽으므로 커밋된 데이터로 테스트하고 끝나면 지운다.
+ */
+@SpringBootTest
+class MemberTestRepositoryScanTest {
+
+    private static final int MEMBERS = 1000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        teamId = new TransactionTemplate(transactionManager).execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, team));
+            }
+            return team.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+    }
+
+    @Test
+    public void scanInChunks() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+
+        long count = memberTestRepository.scanMembers(null, 300, chunk -> {
+            chunkSizes.add(chunk.size());
+            chunk.forEach(m -> ids.add(m.getId()));
+        });
+
+        assertThat(count).isEqualTo(MEMBERS);
+        assertThat(chunkSizes).containsExactly(300, 300, 300, 100);
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void scanWithPredicate() {
+        List<Member> found = new ArrayList<>();
+
+        long count = memberTestRepository.scanMembers(member.age.goe(90), 50, chunk -> {
+            found.addAll(chunk);
+            assertThat(em.contains(chunk.get(0))).isFalse(); // 영속성 컨텍스트에 올라가지 않는다.
+        });
+
+        assertThat(count).isEqualTo(100);
+        assertThat(found).allMatch(m -> m.getAge() >= 90);
+        assertThat(found).allMatch(m -> m.getTeam().getId().equals(teamId)); // LAZY 프록시의 id 는 꺼낼 수 있다.
+    }
+
+    @Test
+    public void scanParallelByIdRange() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        long count = memberTestRepository.scanMembersParallel(member.username.startsWith("member"), 64, 4,
+                chunk -> chunk.forEach(m -> ids.add(m.getId())));
+
+        assertThat(count).isEqualTo(MEMBERS);
+        assertThat(ids).hasSize(MEMBERS);
+    }
+
+    @Test
+    public void stream() {
+        try (Stream<Member> members = memberTestRepository.streamMembers(member.age.eq(7))) {
+            assertThat(members.map(Member::getUsername).collect(Collectors.toList()))
+                    .hasSize(10)
+                    .allMatch(username -> username.endsWith("7"));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.FetchPlan;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 쿼리 수는 하이버네이트 통계의 prepared statement 수로 확인한다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    PersistenceUnitUtil util;
+    Statistics statistics;
+
+    @BeforeEach
+    public void before() {
+        for (int t = 0; t < 3; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for (int i = 0; i < 4; i++) {
+                em.persist(new Member("member" + t + "_" + i, t * 10 + i, team));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void withoutFetchPlanTeamStaysLazy() {
+        List<Member> members = memberTestRepository.basicSelect();
+
+        assertThat(members).hasSize(12);
+        assertThat(members).noneMatch(member -> util.isLoaded(member, "team"));
+    }
+
+    @Test
+    public void namedFetchPlan() {
+        List<Member> members = memberTestRepository.basicSelect(FetchPlan.named("Member.withTeam"));
+
+        assertThat(members).hasSize(12);
+        assertThat(members).allMatch(member -> util.isLoaded(member, "team"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1); // team 은 조인으로 같이
+    }
+
+    @Test
+    public void pagingWithToOneFetchPlan() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        Page<Member> page = memberTestRepository.applyPagination(condition,
+                PageRequest.of(0, 3, Sort.by("age")), FetchPlan.of("team"));
+
+        assertThat(page.getTotalElements()).isEqualTo(8);
+        assertThat(page.getContent()).extracting("username").containsExactly("member1_0", "member1_1", "member1_2");
+        assertThat(page.getContent()).allMatch(member -> util.isLoaded(member, "team"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2); // content(+team) + count
+    }
+
+    /**
+     * 컬렉션은 조인하지 않고(메모리 페이징 방지) 페이지를 가져온 뒤 팀 여러 개의 members 를 IN 쿼리 한번으로 로딩
+     */
+    @Test
+    public void pagingWithCollectionFetchPlan() {
+        Page<Member> page = memberTestRepository.searchPageByApplyPage(new MemberSearchCondition(),
+                PageRequest.of(0, 6, Sort.by("age")), FetchPlan.of("team.members"));
+
+        assertThat(page.getContent()).hasSize(6);
+        assertThat(page.getTotalElements()).isEqualTo(12);
+        for (Member member : page.getContent()) {
+            assertThat(util.isLoaded(member, "team")).isTrue();
+            assertThat(util.isLoaded(member.getTeam(), "members")).isTrue();
+        }
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3); // content(+team) + members 배치 + count
+    }
+}
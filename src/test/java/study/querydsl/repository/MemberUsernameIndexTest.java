@@ -0,0 +1,56 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * username 앞부분 일치 / 대소문자 무시 검색이 인덱스를 타는지 실행 계획(H2 explain)으로 확인
+ */
+@SpringBootTest
+@Transactional
+class MemberUsernameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 5000; i++) {
+            em.persist(new Member((i % 2 == 0 ? "Member" : "USER") + i, i % 100));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void lowerFunctionIsFullScan() {
+        // sqlFunction2 처럼 컬럼에 lower() 를 씌우면 인덱스를 못 탄다.
+        String plan = explain("select member_id from member where lower(username) = 'member10'");
+        assertThat(plan).containsIgnoringCase("tableScan");
+    }
+
+    @Test
+    public void usernameLowerUsesIndex() {
+        String eqPlan = explain("select member_id from member where username_lower = 'member10'");
+        assertThat(eqPlan).containsIgnoringCase("idx_member_username_lower");
+
+        String prefixPlan = explain("select member_id from member where username_lower like 'member1%'");
+        assertThat(prefixPlan).containsIgnoringCase("idx_member_username_lower");
+
+        String usernamePrefixPlan = explain("select member_id from member where username like 'Member1%'");
+        // idx_member_username_lower 와 구분되도록 인덱스 이름 전체로 비교
+        assertThat(usernamePrefixPlan).containsPattern("(?i)\\bidx_member_username\\b");
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(em.createNativeQuery("explain " + sql).getSingleResult());
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SingleFlightMemberRepositoryTest {
+
+    @Autowired
+    SingleFlightMemberRepository singleFlightMemberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void outsideTransactionGoesThroughSingleFlight() {
+        Map<String, Object> before = singleFlightMemberRepository.metrics();
+
+        singleFlightMemberRepository.search(new MemberSearchCondition());
+
+        Map<String, Object> after = singleFlightMemberRepository.metrics();
+        assertThat(delta(before, after, "calls")).isEqualTo(1);
+        assertThat(delta(before, after, "executions")).isEqualTo(1);
+        assertThat(delta(before, after, "inTransaction")).isZero();
+    }
+
+    // 트랜잭션 안에서는 합치지 않고 바로 실행 -> 커밋 전 자기 변경이 보인다.
+    @Test
+    public void insideTransactionBypassesSingleFlight() {
+        Map<String, Object> before = singleFlightMemberRepository.metrics();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(new Member("singleFlight1", 10));
+            em.flush();
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername("singleFlight1");
+            List<MemberTeamDto> result = singleFlightMemberRepository.search(condition);
+
+            assertThat(result).extracting("username").containsExactly("singleFlight1");
+            status.setRollbackOnly();
+        });
+
+        Map<String, Object> after = singleFlightMemberRepository.metrics();
+        assertThat(delta(before, after, "inTransaction")).isEqualTo(1);
+        assertThat(delta(before, after, "calls")).isZero();
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String name) {
+        return (long) after.get(name) - (long) before.get(name);
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TeamIdCacheTest {
+
+    @Autowired
+    TeamIdCache teamIdCache;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    // 같은 트랜잭션에서는 보이지만, 커밋 전이라 다른 트랜잭션(스레드)에는 캐시로 새지 않는다.
+    @Test
+    public void uncommittedTeamIsNotShared() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Team team = new Team("uncommittedTeam");
+            em.persist(team);
+
+            assertThat(teamIdCache.findIds("uncommittedTeam")).containsExactly(team.getId());
+            assertThat(findIdsInOtherThread("uncommittedTeam")).isEmpty();
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamIdCache.findIds("uncommittedTeam")).isEmpty();
+    }
+
+    private List<Long> findIdsInOtherThread(String teamName) {
+        return CompletableFuture.supplyAsync(() -> teamIdCache.findIds(teamName), executor)
+                .orTimeout(5, TimeUnit.SECONDS)
+                .join();
+    }
+}
@@ -0,0 +1,305 @@
+package study.querydsl.repository.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberInsertDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpqRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.sql.MemberBulkInsertRepository;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인덱스는 커밋된 데이터만 반영하므로 @Transactional 없이 TransactionTemplate 으로 커밋해가며 테스트한다.
+ */
+@SpringBootTest(properties = "querydsl.member-index.enabled=true")
+class MemberColumnIndexTest {
+
+    private static final String[] USERNAMES = {"member1", "member2", "member3", "member4", "member5", ""};
+    private static final String[] TEAM_NAMES = {"teamA", "teamB", "teamC", "teamA"}; // 팀명 중복도 포함
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpqRepository memberJpqRepository;
+
+    @Autowired
+    MemberBulkInsertRepository memberBulkInsertRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberColumnIndex memberColumnIndex;
+
+    TransactionTemplate tx;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+        memberColumnIndex.reload(); // 벌크 삭제는 이벤트가 없으므로 다시 적재
+    }
+
+    // 커밋한 데이터를 지워서 다른 @Transactional 테스트에 영향이 없도록
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+    }
+
+    /**
+     * 랜덤 데이터 + 랜덤 조건으로 querydsl 결과와 인덱스 결과가 같은지 비교 (property-based)
+     */
+    @Test
+    public void sameResultAsQuerydsl() throws Exception {
+        Random random = new Random(20221018L);
+
+        tx.executeWithoutResult(status -> {
+            Team[] teams = new Team[TEAM_NAMES.length];
+            for (int i = 0; i < TEAM_NAMES.length; i++) {
+                teams[i] = new Team(TEAM_NAMES[i]);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < 300; i++) {
+                Team team = random.nextInt(5) == 0 ? null : teams[random.nextInt(teams.length)];
+                em.persist(new Member(pick(random, USERNAMES), random.nextInt(60), team));
+            }
+        });
+
+        for (int i = 0; i < 500; i++) {
+            MemberSearchCondition condition = randomCondition(random);
+
+            List<MemberTeamDto> expected = memberJpqRepository.search(condition);
+            List<MemberTeamDto> actual = memberColumnIndex.search(condition);
+
+            assertThat(actual).as(condition.toString()).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void updateAndDelete() throws Exception {
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("member2", 20, teamA);
+            em.persist(member1);
+            em.persist(member2);
+            return new Long[]{member1.getId(), member2.getId()};
+        });
+
+        tx.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, ids[0]);
+            member1.setAge(30);
+            em.remove(em.find(Member.class, ids[1]));
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(25);
+        assertThat(memberColumnIndex.search(condition)).extracting("username").containsExactly("member1");
+        assertThat(memberColumnIndex.search(new MemberSearchCondition())).hasSize(1);
+    }
+
+    /**
+     * 적재할 때 회원이 없던 팀, 적재 뒤에 이벤트 없이(SQL 로) 만든 팀에 대량 저장해도 팀명으로 찾을 수 있어야 한다.
+     */
+    @Test
+    public void bulkInsertIntoTeamWithoutMembers() throws Exception {
+        Long[] teamIds = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team emptyTeam = new Team("emptyTeam");
+            em.persist(teamA);
+            em.persist(emptyTeam);
+            em.persist(new Member("member1", 10, teamA));
+            return new Long[]{teamA.getId(), emptyTeam.getId()};
+        });
+        memberColumnIndex.reload();
+
+        Long sqlTeamId = 1_000_000L;
+        tx.executeWithoutResult(status -> em.createNativeQuery("insert into team (id, name) values (?, 'sqlTeam')")
+                .setParameter(1, sqlTeamId).executeUpdate());
+
+        memberBulkInsertRepository.insert(Arrays.asList(
+                new MemberInsertDto("member2", 20, teamIds[1]),
+                new MemberInsertDto("member3", 30, sqlTeamId),
+                new MemberInsertDto("member4", 40, teamIds[0])));
+
+        for (String teamName : new String[]{null, "teamA", "emptyTeam", "sqlTeam"}) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName(teamName);
+            assertThat(memberColumnIndex.search(condition)).as(String.valueOf(teamName))
+                    .containsExactlyInAnyOrderElementsOf(memberJpqRepository.search(condition));
+        }
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("emptyTeam");
+        assertThat(memberColumnIndex.search(condition)).extracting("username").containsExactly("member2");
+    }
+
+    /**
+     * 적재할 때 회원이 없던 팀, 적재 뒤에 이벤트 없이(SQL 로) 만든 팀으로 옮겨도 팀명으로 찾을 수 있어야 한다.
+     */
+    @Test
+    public void reassignIntoTeamWithoutMembers() throws Exception {
+        Long emptyTeamId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team emptyTeam = new Team("emptyTeam");
+            em.persist(teamA);
+            em.persist(emptyTeam);
+            for (int i = 1; i <= 4; i++) {
+                em.persist(new Member("member" + i, i * 10, teamA));
+            }
+            return emptyTeam.getId();
+        });
+        memberColumnIndex.reload();
+
+        Long sqlTeamId = 1_000_000L;
+        tx.executeWithoutResult(status -> em.createNativeQuery("insert into team (id, name) values (?, 'sqlTeam')")
+                .setParameter(1, sqlTeamId).executeUpdate());
+
+        MemberSearchCondition toEmptyTeam = new MemberSearchCondition();
+        toEmptyTeam.setAgeLoe(20);
+        memberRepository.reassignTeam(toEmptyTeam, emptyTeamId);
+        MemberSearchCondition toSqlTeam = new MemberSearchCondition();
+        toSqlTeam.setAgeGoe(40);
+        memberRepository.reassignTeam(toSqlTeam, sqlTeamId);
+
+        for (String teamName : new String[]{null, "teamA", "emptyTeam", "sqlTeam"}) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName(teamName);
+            assertThat(memberColumnIndex.search(condition)).as(String.valueOf(teamName))
+                    .containsExactlyInAnyOrderElementsOf(memberJpqRepository.search(condition));
+        }
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("emptyTeam");
+        assertThat(memberColumnIndex.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    /**
+     * 스냅샷을 뜬 뒤(앱이 꺼져 있는 동안) DB 를 직접 바꿔도 복원하면 DB 와 같아야 한다.
+     * 수정, 삭제, 팀 이름 변경, 회원 없는 새 팀, 새 회원
+     */
+    @Test
+    public void restoreReplaysChangesSinceSnapshot() throws Exception {
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("member2", 20, teamA);
+            Member member3 = new Member("member3", 30, teamB);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            return new Long[]{member1.getId(), member2.getId(), member3.getId(), teamB.getId()};
+        });
+        memberColumnIndex.reload();
+
+        Path path = tempDir.resolve("member-index.snapshot");
+        MemberIndexSnapshot.write(path, memberColumnIndex.columns());
+
+        // 꺼져 있는 동안의 변경 (이벤트 없이 DB 만 바뀐다고 보고 벌크 쿼리로)
+        tx.executeWithoutResult(status -> {
+            em.createQuery("update Member m set m.age = 40, m.version = m.version + 1 where m.id = :id")
+                    .setParameter("id", ids[0]).executeUpdate();
+            em.createQuery("delete from Member m where m.id = :id").setParameter("id", ids[1]).executeUpdate();
+            em.createQuery("update Team t set t.name = 'teamB2' where t.id = :id").setParameter("id", ids[3]).executeUpdate();
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            em.persist(new Member("member4", 50, teamC));
+        });
+
+        memberColumnIndex.restore(MemberIndexSnapshot.read(path));
+
+        for (String teamName : new String[]{null, "teamA", "teamB", "teamB2", "teamC"}) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName(teamName);
+            assertThat(memberColumnIndex.search(condition)).as(String.valueOf(teamName))
+                    .containsExactlyInAnyOrderElementsOf(memberJpqRepository.search(condition));
+        }
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        assertThat(memberColumnIndex.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member4");
+    }
+
+    /**
+     * 나이 정렬 키는 쓰기 쪽에서 유지하므로, 수정이 계속 들어와도 나이 범위 결과가 querydsl 과 같아야 한다.
+     */
+    @Test
+    public void ageChangesKeepAgeKeysSorted() throws Exception {
+        Random random = new Random(20261019L);
+        Long[] ids = tx.execute(status -> {
+            Long[] result = new Long[50];
+            for (int i = 0; i < result.length; i++) {
+                Member member = new Member("member" + i, random.nextInt(60));
+                em.persist(member);
+                result[i] = member.getId();
+            }
+            return result;
+        });
+
+        for (int i = 0; i < 100; i++) {
+            Long id = ids[random.nextInt(ids.length)];
+            int age = random.nextInt(60);
+            tx.executeWithoutResult(status -> em.find(Member.class, id).setAge(age));
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(random.nextInt(60));
+            condition.setAgeLoe(condition.getAgeGoe() + random.nextInt(20));
+            assertThat(memberColumnIndex.search(condition)).as(condition.toString())
+                    .containsExactlyInAnyOrderElementsOf(memberJpqRepository.search(condition));
+        }
+    }
+
+    private MemberSearchCondition randomCondition(Random random) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if (random.nextBoolean()) {
+            condition.setUsername(random.nextInt(10) == 0 ? "none" : pick(random, USERNAMES));
+        }
+        if (random.nextBoolean()) {
+            condition.setTeamName(random.nextInt(10) == 0 ? "none" : pick(random, TEAM_NAMES));
+        }
+        if (random.nextBoolean()) {
+            condition.setAgeGoe(random.nextInt(70) - 5);
+        }
+        if (random.nextBoolean()) {
+            condition.setAgeLoe(random.nextInt(70) - 5);
+        }
+        return condition;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.repository.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberIndexSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void writeAndRead() throws Exception {
+        MemberIndexSnapshot.Columns columns = new MemberIndexSnapshot.Columns();
+        columns.teamCount = 2;
+        columns.teamIds = new long[]{1L, 2L};
+        columns.teamNames = new String[]{"teamA", "teamB"};
+        columns.rowCount = 3;
+        columns.ids = new long[]{3L, 5L, 7L};
+        columns.versions = new long[]{0L, 4L, -1L};
+        columns.ages = new int[]{10, 20, 30};
+        columns.teamCodes = new int[]{0, -1, 1};
+        columns.usernames = new String[]{"member1", null, "member1"};
+
+        Path path = tempDir.resolve("member-index.snapshot");
+        MemberIndexSnapshot.write(path, columns);
+        MemberIndexSnapshot.Columns result = MemberIndexSnapshot.read(path);
+
+        assertThat(result.teamCount).isEqualTo(2);
+        assertThat(result.teamNames[1]).isEqualTo("teamB");
+        assertThat(result.rowCount).isEqualTo(3);
+        assertThat(result.ids[2]).isEqualTo(7L);
+        assertThat(result.versions[1]).isEqualTo(4L);
+        assertThat(result.versions[2]).isEqualTo(-1L);
+        assertThat(result.ages[1]).isEqualTo(20);
+        assertThat(result.teamCodes[1]).isEqualTo(-1);
+        assertThat(result.usernames[1]).isNull();
+        // 사전 인코딩이라 같은 username 은 같은 String 을 공유한다.
+        assertThat(result.usernames[0]).isSameAs(result.usernames[2]);
+    }
+}
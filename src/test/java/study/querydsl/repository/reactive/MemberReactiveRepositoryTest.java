@@ -0,0 +1,99 @@
+package study.querydsl.repository.reactive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpqRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * R2DBC 는 JPA 트랜잭션 밖의 별도 커넥션이므로 데이터를 커밋한 뒤 비교한다.
+ */
+@SpringBootTest
+class MemberReactiveRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberReactiveRepository memberReactiveRepository;
+
+    @Autowired
+    MemberJpqRepository memberJpqRepository;
+
+    @BeforeEach
+    public void before() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("Member3", 30, teamB));
+            em.persist(new Member("member_4", 40, teamB));
+            em.persist(new Member("member5", 50));
+        });
+    }
+
+    // 커밋한 데이터를 지워서 다른 @Transactional 테스트에 영향이 없도록
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+    }
+
+    @Test
+    public void sameResultAsJpa() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertSame(condition);
+
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(35);
+        assertSame(condition);
+
+        condition = new MemberSearchCondition();
+        condition.setUsernameStartsWith("member");
+        condition.setUsernameIgnoreCase(true);
+        condition.setAgeLoe(30);
+        assertSame(condition);
+
+        condition = new MemberSearchCondition();
+        condition.setUsernameStartsWith("member_"); // like 특수문자는 escape
+        assertSame(condition);
+    }
+
+    @Test
+    public void orderedByMemberId() {
+        List<MemberTeamDto> result = memberReactiveRepository.search(new MemberSearchCondition()).collectList().block();
+
+        assertThat(result).hasSize(5);
+        assertThat(result).extracting("memberId").isSorted();
+    }
+
+    private void assertSame(MemberSearchCondition condition) {
+        List<MemberTeamDto> actual = memberReactiveRepository.search(condition).collectList().block();
+        assertThat(actual).as(condition.toString())
+                .containsExactlyInAnyOrderElementsOf(memberJpqRepository.search(condition));
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.repository.search;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 색인은 커밋 이벤트로 갱신되므로 @Transactional 없이 커밋해가며 테스트한다.
+ */
+@SpringBootTest(properties = {
+        "querydsl.full-text.enabled=true",
+        "querydsl.full-text.index-dir=build/member-full-text-test/${random.uuid}"
+})
+class MemberFullTextIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberFullTextIndex memberFullTextIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    TransactionTemplate tx;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        // 벌크 삭제는 이벤트가 없어서 색인에 남지만, searchByIds 가 DB 에 없는 id 는 걸러낸다.
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+        teamBId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("kimyounghan", 10, teamA));
+            em.persist(new Member("parkjisung", 20, teamB));
+            em.persist(new Member("sonheungmin", 30, teamB));
+            return teamB.getId();
+        });
+        memberFullTextIndex.refresh();
+    }
+
+    // 커밋한 데이터를 지워서 다른 @Transactional 테스트에 영향이 없도록
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+    }
+
+    @Test
+    public void substring() {
+        List<Long> ids = memberFullTextIndex.search("heung", 10);
+        assertThat(memberRepository.searchByIds(ids)).extracting("username").containsExactly("sonheungmin");
+    }
+
+    @Test
+    public void fuzzy() {
+        // 오타 (편집 거리 1)
+        List<Long> ids = memberFullTextIndex.search("parkjisong", 10);
+        assertThat(memberRepository.searchByIds(ids)).extracting("username").contains("parkjisung");
+    }
+
+    @Test
+    public void teamNameAndRename() {
+        assertThat(memberRepository.searchByIds(memberFullTextIndex.search("eamB", 10)))
+                .extracting("username").contains("parkjisung", "sonheungmin");
+
+        tx.executeWithoutResult(status -> em.find(Team.class, teamBId).setName("fcSeoul"));
+        memberFullTextIndex.refresh();
+
+        List<MemberTeamDto> result = memberRepository.searchByIds(memberFullTextIndex.search("seoul", 10));
+        assertThat(result).extracting("username").contains("parkjisung", "sonheungmin");
+        assertThat(result).extracting("teamName").containsOnly("fcSeoul");
+    }
+
+    // 다시 띄우면 디스크에 남은 이전 색인은 버리고 DB 기준으로 새로 만든다. (테이블이 다시 만들어지면 id 가 재사용되므로)
+    @Test
+    public void restartDropsPreviousIndex(@TempDir Path indexDir) throws Exception {
+        MemberFullTextIndex previous = new MemberFullTextIndex(queryFactory, indexDir.toString(), 60_000);
+        previous.rebuild();
+        assertThat(previous.search("heung", 10)).hasSize(1);
+        previous.close();
+
+        // 이벤트 없이 DB 에서만 사라진 회원 (재시작 중에 테이블이 다시 만들어진 경우)
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username = 'sonheungmin'").executeUpdate());
+
+        MemberFullTextIndex restarted = new MemberFullTextIndex(queryFactory, indexDir.toString(), 60_000);
+        try {
+            assertThat(restarted.search("heung", 10)).isEmpty();
+            restarted.rebuild();
+            assertThat(restarted.search("heung", 10)).isEmpty();
+            assertThat(memberRepository.searchByIds(restarted.search("park", 10)))
+                    .extracting("username").containsExactly("parkjisung");
+        } finally {
+            restarted.close();
+        }
+    }
+}
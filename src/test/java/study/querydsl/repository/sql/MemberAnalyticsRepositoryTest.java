@@ -0,0 +1,79 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberAgeRankDto;
+import study.querydsl.dto.MemberAgeVsTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * querydsl-sql 은 JPA 와 같은 트랜잭션(커넥션)을 쓰므로 flush 만 하면 persist 한 데이터가 보인다.
+ */
+@SpringBootTest
+@Transactional
+class MemberAnalyticsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberAnalyticsRepository memberAnalyticsRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 30, teamB));
+        em.persist(new Member("member5", 40, teamB));
+        em.persist(new Member("member6", 50)); // 팀 없음
+        em.flush();
+    }
+
+    @Test
+    public void ageRankInTeam() {
+        List<MemberAgeRankDto> result = memberAnalyticsRepository.ageRankInTeam();
+
+        // 같은 나이는 같은 순위(rank)
+        assertThat(result).extracting("username", "teamName", "rank").containsExactly(
+                tuple("member2", "teamA", 1L),
+                tuple("member3", "teamA", 1L),
+                tuple("member1", "teamA", 3L),
+                tuple("member5", "teamB", 1L),
+                tuple("member4", "teamB", 2L));
+    }
+
+    @Test
+    public void ageVsTeamAverage() {
+        List<MemberAgeVsTeamDto> result = memberAnalyticsRepository.ageVsTeamAverage();
+
+        assertThat(result).hasSize(5);
+        assertThat(result.get(0).getTeamAvgAge()).isCloseTo(50.0 / 3, offset(0.001));
+        assertThat(result.get(3).getTeamAvgAge()).isEqualTo(35.0);
+        assertThat(result.get(3).getDiff()).isEqualTo(-5.0);
+    }
+
+    @Test
+    public void topNPerTeam() {
+        List<MemberAgeRankDto> result = memberAnalyticsRepository.topNPerTeam(2);
+
+        // 같은 나이는 member_id 순으로 자른다.
+        assertThat(result).extracting("username").containsExactly("member2", "member3", "member5", "member4");
+    }
+}
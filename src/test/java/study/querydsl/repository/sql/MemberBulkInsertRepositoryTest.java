@@ -0,0 +1,63 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberBulkInsertResult;
+import study.querydsl.dto.MemberInsertDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberBulkInsertRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkInsertRepository memberBulkInsertRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void insert() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.flush();
+
+        List<MemberInsertDto> rows = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            rows.add(new MemberInsertDto("Member" + i, i % 100, i % 2 == 0 ? teamA.getId() : null));
+        }
+
+        MemberBulkInsertResult result = memberBulkInsertRepository.insert(rows, 1000);
+
+        assertThat(result.getRows()).isEqualTo(2500);
+        assertThat(result.getRowsPerSecond()).isPositive();
+        assertThat(memberRepository.count()).isEqualTo(2500);
+
+        // username_lower, team_id 도 채워져 있다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member10");
+        condition.setUsernameIgnoreCase(true);
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("Member10");
+
+        // 시퀀스에서 id 를 받았으므로 JPA 로 저장해도 id 가 겹치지 않는다.
+        Member member = new Member("jpa", 10);
+        em.persist(member);
+        em.flush();
+        assertThat(memberRepository.count()).isEqualTo(2501);
+    }
+}
@@ -0,0 +1,127 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberInsertDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 내보내기는 트랜잭션 커넥션(SpringConnectionProvider)을 쓰므로 테스트 트랜잭션 안에서 저장한 데이터도 보인다.
+ * fetch-size, 버퍼를 줄여서 여러 번 나눠 받고 여러 번 flush 되게 한다.
+ */
+@SpringBootTest(properties = {
+        "querydsl.csv-export.fetch-size=1000",
+        "querydsl.csv-export.buffer-size-kb=8"
+})
+@Transactional
+class MemberCsvExporterTest {
+
+    private static final int ROWS = 50_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkInsertRepository memberBulkInsertRepository;
+
+    @Autowired
+    MemberCsvExporter memberCsvExporter;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void exportCsv() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.flush();
+
+        List<MemberInsertDto> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new MemberInsertDto("회원" + i, i % 100, i % 2 == 0 ? teamA.getId() : null));
+        }
+        rows.add(new MemberInsertDto("kim, \"jr\"", 30, teamA.getId())); // 따옴표로 감싸야 하는 값
+        memberBulkInsertRepository.insert(rows, 1000);
+
+        Path all = tempDir.resolve("all.csv");
+        assertThat(memberCsvExporter.exportCsv(new MemberSearchCondition(), all)).isEqualTo(ROWS + 1);
+
+        List<String> lines = Files.readAllLines(all, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(ROWS + 2);
+        assertThat(lines.get(0)).isEqualTo("memberId,username,age,teamId,teamName");
+        assertThat(lines.get(1)).endsWith(",회원0,0," + teamA.getId() + ",teamA");
+        assertThat(lines.get(2)).endsWith(",회원1,1,,");
+        assertThat(lines.get(ROWS + 1)).endsWith(",\"kim, \"\"jr\"\"\",30," + teamA.getId() + ",teamA");
+
+        // search 와 같은 조건
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(90);
+        Path filtered = tempDir.resolve("filtered.csv");
+        assertThat(memberCsvExporter.exportCsv(condition, filtered)).isEqualTo(memberRepository.search(condition).size());
+
+        condition.setTeamName("none");
+        assertThat(memberCsvExporter.exportCsv(condition, filtered)).isZero();
+        assertThat(Files.readAllLines(filtered)).containsExactly("memberId,username,age,teamId,teamName");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(MemberCsvExporter.transfer(all, Channels.newChannel(out))).isEqualTo(Files.size(all));
+        assertThat(out.toByteArray()).isEqualTo(Files.readAllBytes(all));
+    }
+
+    /**
+     * 내보내기는 row 를 객체로 모으지 않고 바로 인코딩하므로 row 당 할당량이 작고,
+     * List<MemberTeamDto> 로 한번에 읽는 search 보다 적어야 한다.
+     */
+    @Test
+    public void allocationPerRow() throws Exception {
+        List<MemberInsertDto> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new MemberInsertDto("member" + i, i % 100, null));
+        }
+        memberBulkInsertRepository.insert(rows, 1000);
+
+        Path file = tempDir.resolve("members.csv");
+        memberCsvExporter.exportCsv(new MemberSearchCondition(), file); // 워밍업
+        memberRepository.search(new MemberSearchCondition());
+
+        long allocatedBefore = allocatedBytes();
+        long exported = memberCsvExporter.exportCsv(new MemberSearchCondition(), file);
+        long exportPerRow = (allocatedBytes() - allocatedBefore) / exported;
+
+        allocatedBefore = allocatedBytes();
+        int searched = memberRepository.search(new MemberSearchCondition()).size();
+        long searchPerRow = (allocatedBytes() - allocatedBefore) / searched;
+
+        assertThat(exported).isEqualTo(ROWS);
+        assertThat(searched).isEqualTo(ROWS);
+        assertThat(exportPerRow).isLessThan(1024); // 드라이버가 row 마다 만드는 값 객체 정도
+        assertThat(exportPerRow).isLessThan(searchPerRow);
+    }
+
+    // 현재 스레드가 지금까지 힙에 할당한 바이트 (HotSpot)
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,144 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 가져오기는 묶음마다 커밋하므로 @Transactional 없이 테스트하고 끝나면 지운다.
+ * chunk 를 1MB 로 줄여서 여러 chunk 로 나눠 병렬 파싱되게 한다.
+ */
+@SpringBootTest(properties = {
+        "querydsl.csv-import.chunk-size-mb=1",
+        "querydsl.csv-import.parallelism=4",
+        "querydsl.csv-import.queue-capacity=2",
+        "querydsl.bulk-insert.batch-size=500"
+})
+class MemberCsvImporterTest {
+
+    private static final int LINES = 100_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberCsvImporter memberCsvImporter;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+    }
+
+    @Test
+    public void importCsv() throws Exception {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(new Team("teamA"));
+            em.persist(new Team("teamB"));
+        });
+
+        Path csv = tempDir.resolve("members.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("username,age,teamName\n");
+            for (int i = 0; i < LINES; i++) {
+                String teamName = i % 3 == 0 ? "" : i % 3 == 1 ? "teamA" : "teamB";
+                writer.write("회원" + i + "," + (i % 100) + "," + teamName + "\r\n");
+            }
+            writer.write("broken line\n");
+            writer.write("member,abc,teamA\n");
+            writer.write("member,10,teamZ\n"); // 없는 팀
+        }
+
+        MemberImportResult result = memberCsvImporter.importCsv(csv);
+
+        assertThat(result.getRows()).isEqualTo(LINES);
+        assertThat(result.getSkipped()).isEqualTo(3);
+        assertThat(memberRepository.count()).isEqualTo(LINES);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("회원4");
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactly(4);
+    }
+
+    /**
+     * 중간 묶음 저장이 실패해도 예외의 남은 범위만 다시 가져오면 중복 없이 전부 저장된다.
+     */
+    @Test
+    public void resumeFromPendingRanges() throws Exception {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Team("teamA")));
+
+        String badLine = "x".repeat(300) + ",10,teamA\n"; // username varchar(255) 초과 -> 그 묶음 insert 실패
+        Path csv = tempDir.resolve("members.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < LINES; i++) {
+                writer.write("member" + i + "," + (i % 100) + ",teamA\n");
+                if (i == LINES / 2) {
+                    writer.write(badLine);
+                }
+            }
+        }
+
+        MemberCsvImportException exception = null;
+        try {
+            memberCsvImporter.importCsv(csv);
+        } catch (MemberCsvImportException e) {
+            exception = e;
+        }
+        assertThat(exception).isNotNull();
+        assertThat(memberRepository.count()).isEqualTo(exception.getCommittedRows());
+        assertThat(exception.getPendingRanges()).isNotEmpty();
+
+        // 같은 길이의 잘못된 줄(쉼표 없음 -> 건너뜀)로 고쳐서 위치를 유지한 채 남은 범위만 다시 가져온다.
+        String content = new String(Files.readAllBytes(csv), StandardCharsets.UTF_8);
+        Files.write(csv, content.replace(badLine, "y".repeat(badLine.length() - 1) + "\n").getBytes(StandardCharsets.UTF_8));
+        MemberImportResult result = memberCsvImporter.importCsv(csv, exception.getPendingRanges());
+
+        assertThat(exception.getCommittedRows() + result.getRows()).isEqualTo(LINES);
+        assertThat(memberRepository.count()).isEqualTo(LINES);
+    }
+
+    @Test
+    public void splitAtLineBoundaries() throws Exception {
+        Path file = tempDir.resolve("lines.csv");
+        Files.writeString(file, "a,1\nbb,2\nccc,3\ndddd,4\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = MemberCsvImporter.split(channel, channel.size(), 5);
+
+            // 5 바이트씩 자르되 다음 줄 시작까지 밀린다: [0,9) [9,15) [15,22)
+            assertThat(chunks).extracting(chunk -> chunk[0]).containsExactly(0L, 9L, 15L);
+            assertThat(chunks.get(chunks.size() - 1)[1]).isEqualTo(channel.size());
+        }
+    }
+}
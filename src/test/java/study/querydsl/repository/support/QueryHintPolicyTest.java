@@ -0,0 +1,117 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest(properties = {
+        "querydsl.query-hints.fetch-size=100",
+        "querydsl.query-hints.timeout-ms=10000"
+})
+@Transactional(readOnly = true)
+class QueryHintPolicyTest {
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    QueryHintPolicy queryHintPolicy;
+
+    @Autowired
+    EntityManager em;
+
+    @AfterEach
+    public void after() {
+        QueryHintPolicy.clearEndpointTimeout();
+    }
+
+    @Test
+    public void defaultHints() {
+        Query<?> query = hibernateQuery(queryFactory.selectFrom(member));
+
+        assertThat(query.getFetchSize()).isEqualTo(100);
+        assertThat(query.getTimeout()).isEqualTo(10); // 초
+        assertThat(query.getComment()).isEqualTo("QueryHintPolicyTest.defaultHints");
+    }
+
+    @Test
+    @Transactional
+    public void notReadOnlyInWriteTransaction() {
+        assertThat(hibernateQuery(queryFactory.selectFrom(member)).isReadOnly()).isFalse();
+    }
+
+    @Test
+    public void overridePerCall() {
+        JPAQuery<Member> jpaQuery = queryHintPolicy
+                .fetchSize(10)
+                .timeout(Duration.ofSeconds(1))
+                .callerComment(false)
+                .apply(queryFactory.selectFrom(member));
+
+        Query<?> query = hibernateQuery(jpaQuery);
+        assertThat(query.getFetchSize()).isEqualTo(10);
+        assertThat(query.getTimeout()).isEqualTo(1);
+    }
+
+    // 세션 기본값과 반대로 지정해도 힌트가 걸려서 로딩된 엔티티에 반영된다.
+    @Test
+    @Transactional
+    public void readOnlyOverridesSessionDefault() {
+        Member saved = new Member("member1", 10);
+        em.persist(saved);
+        em.flush();
+        em.clear();
+        Session session = em.unwrap(Session.class);
+
+        session.setDefaultReadOnly(true);
+        Member writable = queryHintPolicy.readOnly(false)
+                .apply(queryFactory.selectFrom(member).where(member.id.eq(saved.getId())))
+                .fetchOne();
+        assertThat(session.isReadOnly(writable)).isFalse();
+
+        em.clear();
+        session.setDefaultReadOnly(false);
+        Member readOnly = queryHintPolicy.readOnly(true)
+                .apply(queryFactory.selectFrom(member).where(member.id.eq(saved.getId())))
+                .fetchOne();
+        assertThat(session.isReadOnly(readOnly)).isTrue();
+    }
+
+    // 1초 미만도 0(타임아웃 없음)이 되지 않고 1초로 올린다.
+    @Test
+    public void subSecondTimeoutRoundsUp() {
+        JPAQuery<Member> jpaQuery = queryHintPolicy.timeout(Duration.ofMillis(400)).apply(queryFactory.selectFrom(member));
+        assertThat(hibernateQuery(jpaQuery).getTimeout()).isEqualTo(1);
+
+        jpaQuery = queryHintPolicy.timeout(Duration.ofMillis(1500)).apply(queryFactory.selectFrom(member));
+        assertThat(hibernateQuery(jpaQuery).getTimeout()).isEqualTo(2);
+    }
+
+    @Test
+    public void endpointTimeout() {
+        QueryHintPolicy.setEndpointTimeout(Duration.ofSeconds(3));
+        assertThat(hibernateQuery(queryFactory.selectFrom(member)).getTimeout()).isEqualTo(3);
+
+        // 호출마다 지정한 값이 엔드포인트 값보다 우선
+        JPAQuery<Member> jpaQuery = queryHintPolicy.timeout(Duration.ofSeconds(1)).apply(queryFactory.selectFrom(member));
+        assertThat(hibernateQuery(jpaQuery).getTimeout()).isEqualTo(1);
+    }
+
+    private static Query<?> hibernateQuery(JPAQuery<?> jpaQuery) {
+        return jpaQuery.createQuery().unwrap(Query.class);
+    }
+}
@@ -0,0 +1,116 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, List<String>> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> result = new ArrayList<>();
+
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                await(release);
+                return result;
+            })));
+        }
+        // 나머지 호출이 모두 leader 를 기다리기 시작한 뒤에 끝낸다.
+        waitUntil(() -> singleFlight.getCoalesced() == CALLERS - 1);
+        release.countDown();
+
+        for (Future<List<String>> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(singleFlight.getCalls()).isEqualTo(CALLERS);
+        assertThat(singleFlight.getExecutions()).isEqualTo(1);
+        assertThat(singleFlight.getInFlight()).isZero();
+
+        // 끝난 뒤의 호출은 다시 실행 (캐시 X)
+        singleFlight.execute("key", () -> {
+            executions.incrementAndGet();
+            return result;
+        });
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void differentKeysRunSeparately() {
+        SingleFlight<Integer, Integer> singleFlight = new SingleFlight<>();
+
+        assertThat(singleFlight.execute(1, () -> 10)).isEqualTo(10);
+        assertThat(singleFlight.execute(2, () -> 20)).isEqualTo(20);
+        assertThat(singleFlight.getExecutions()).isEqualTo(2);
+        assertThat(singleFlight.getCoalesced()).isZero();
+    }
+
+    @Test
+    public void failureIsSharedAndNotRemembered() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                await(release);
+                throw new IllegalStateException("db down");
+            })));
+        }
+        waitUntil(() -> singleFlight.getCoalesced() == 3);
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(singleFlight.execute("key", () -> "ok")).isEqualTo("ok");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("timeout");
+            }
+            Thread.sleep(1);
+        }
+    }
+}